@@ -0,0 +1,122 @@
+package com.livepid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import net.runelite.api.Hitsplat;
+import net.runelite.api.HitsplatID;
+import net.runelite.api.events.AnimationChanged;
+import net.runelite.api.events.HitsplatApplied;
+
+/**
+ * Pre-built, cyclic event script for a simulated fight. Every event object is allocated up front so
+ * dispatching the script measures only the code under test.
+ */
+final class CombatScene
+{
+	enum Scenario
+	{
+		/** Local player and one opponent trading 4-tick melee hits. */
+		QUIET_1V1(2, 0),
+		/** Thirty players in multi-combat, paired off and swinging every 4-5 ticks. */
+		MULTI_COMBAT_30(30, 0),
+		/** The multi-combat scene plus roughly 200 unrelated hitsplats per tick. */
+		HITSPLAT_STORM(30, 200),
+		/** Fifty players in mass PvP, about 200 hitsplats per tick in total. */
+		MASS_PVP_50(50, 190);
+
+		private final int players;
+		private final int extraHitsplatsPerTick;
+
+		Scenario(int players, int extraHitsplatsPerTick)
+		{
+			this.players = players;
+			this.extraHitsplatsPerTick = extraHitsplatsPerTick;
+		}
+	}
+
+	static final int CYCLE_TICKS = 20;
+
+	private static final int MELEE_ANIMATION = 390;
+	private static final int NON_ATTACK_ANIMATION = 808;
+	private static final int BASE_X = 3200;
+	private static final int BASE_Y = 3600;
+	private static final long SEED = 0x5EED_1DL;
+
+	final SimulatedClient client;
+	final SimulatedPlayer[] players;
+	final AnimationChanged[][] animationsByTick = new AnimationChanged[CYCLE_TICKS][];
+	final HitsplatApplied[][] hitsplatsByTick = new HitsplatApplied[CYCLE_TICKS][];
+
+	private CombatScene(Scenario scenario)
+	{
+		Random random = new Random(SEED);
+		client = new SimulatedClient();
+		players = new SimulatedPlayer[scenario.players];
+		for (int i = 0; i < players.length; i++)
+		{
+			int pair = i / 2;
+			int x = BASE_X + pair * 3 + (i % 2);
+			players[i] = new SimulatedPlayer(i, "Player " + i, x, BASE_Y + (pair % 4))
+				.setAnimation(i % 3 == 2 ? NON_ATTACK_ANIMATION : MELEE_ANIMATION);
+			client.addPlayer(players[i]);
+		}
+		for (int i = 0; i + 1 < players.length; i += 2)
+		{
+			players[i].interactWith(players[i + 1]);
+			players[i + 1].interactWith(players[i]);
+		}
+		players[0].setAnimation(MELEE_ANIMATION);
+		client.setLocalPlayer(players[0]);
+
+		for (int tick = 0; tick < CYCLE_TICKS; tick++)
+		{
+			List<AnimationChanged> tickAnimations = new ArrayList<>();
+			List<HitsplatApplied> tickHitsplats = new ArrayList<>();
+			for (int i = 0; i < players.length; i++)
+			{
+				int attackSpeed = i == 0 ? 4 : 4 + (i % 2);
+				if ((tick + i) % attackSpeed != 0)
+				{
+					continue;
+				}
+
+				SimulatedPlayer attacker = players[i];
+				SimulatedPlayer victim = players[i % 2 == 0 ? Math.min(i + 1, players.length - 1) : i - 1];
+				tickAnimations.add(animation(attacker));
+				boolean involvesLocal = attacker == players[0] || victim == players[0];
+				int type = involvesLocal ? HitsplatID.DAMAGE_ME : HitsplatID.DAMAGE_OTHER;
+				tickHitsplats.add(hitsplat(victim, type, 1 + random.nextInt(30)));
+			}
+			for (int i = 0; i < scenario.extraHitsplatsPerTick; i++)
+			{
+				SimulatedPlayer victim = players[1 + random.nextInt(players.length - 1)];
+				int type = random.nextBoolean() ? HitsplatID.DAMAGE_OTHER : HitsplatID.BLOCK_OTHER;
+				tickHitsplats.add(hitsplat(victim, type, random.nextInt(40)));
+			}
+
+			animationsByTick[tick] = tickAnimations.toArray(new AnimationChanged[0]);
+			hitsplatsByTick[tick] = tickHitsplats.toArray(new HitsplatApplied[0]);
+		}
+	}
+
+	static CombatScene build(Scenario scenario)
+	{
+		return new CombatScene(scenario);
+	}
+
+	private static AnimationChanged animation(SimulatedPlayer actor)
+	{
+		AnimationChanged event = new AnimationChanged();
+		event.setActor(actor.player());
+		return event;
+	}
+
+	private static HitsplatApplied hitsplat(SimulatedPlayer victim, int type, int amount)
+	{
+		HitsplatApplied event = new HitsplatApplied();
+		event.setActor(victim.player());
+		event.setHitsplat(new Hitsplat(type, amount, 0));
+		return event;
+	}
+}
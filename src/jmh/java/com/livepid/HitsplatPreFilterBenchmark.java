@@ -0,0 +1,197 @@
+package com.livepid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.runelite.api.events.AnimationChanged;
+import net.runelite.api.events.HitsplatApplied;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of {@link CombatEventPipeline#onHitsplatApplied} in a 50-player scene with about 200 hitsplats per
+ * tick. {@code rejectedHitsplat} replays only the hitsplats the pre-filter drops and should report 0
+ * bytes/op; {@code sceneHitsplat} replays the whole scene, relevant ones included, after each tick's swings.
+ *
+ * <p>Both walk the scenario a tick at a time and end each tick as its hitsplats run out, like
+ * {@link PidDetectorBenchmark}, so the filter's per-tick reads of who targets the local player are part of
+ * the numbers instead of being cached once for the whole run. Each tick's end is spread over the hitsplats
+ * replayed in it, which is most of {@code rejectedHitsplat}'s ns/op where few hitsplats are rejected per tick.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HitsplatPreFilterBenchmark
+{
+	static final int EVENTS_PER_INVOCATION = 256;
+
+	private static final int TICK_MASK = 0xFFFF;
+
+	@Param({"MASS_PVP_50"})
+	public CombatScene.Scenario scenario;
+
+	private CombatScene scene;
+	private PidDetector detector;
+	private CombatEventPipeline combatEvents;
+	private final DispatchCounter dispatched = new DispatchCounter();
+	/** Per script tick, the hitsplats no consumer receives. */
+	private final HitsplatApplied[][] rejectedByTick = new HitsplatApplied[CombatScene.CYCLE_TICKS][];
+	private int tick;
+	private int eventCursor;
+
+	@Setup
+	public void setUp()
+	{
+		scene = CombatScene.build(scenario);
+		detector = new PidDetector(scene.client.client());
+		combatEvents = new CombatEventPipeline(scene.client.client());
+		combatEvents.addConsumer(detector);
+		combatEvents.addConsumer(dispatched);
+		tick = 0;
+		scene.client.setTickCount(tick);
+
+		// Whatever reaches no consumer was dropped by the pre-filter. Who targets whom never changes in the
+		// scene, so one cycle sorts every tick's hitsplats for good.
+		int rejected = 0;
+		for (int scriptTick = 0; scriptTick < CombatScene.CYCLE_TICKS; scriptTick++)
+		{
+			playAnimations();
+			List<HitsplatApplied> dropped = new ArrayList<>();
+			for (HitsplatApplied hitsplat : scene.hitsplatsByTick[scriptTick])
+			{
+				int before = dispatched.hitsplats;
+				combatEvents.onHitsplatApplied(hitsplat);
+				if (dispatched.hitsplats == before)
+				{
+					dropped.add(hitsplat);
+				}
+			}
+			rejectedByTick[scriptTick] = dropped.toArray(new HitsplatApplied[0]);
+			rejected += dropped.size();
+			endTick();
+			advanceTick();
+		}
+		if (rejected == 0)
+		{
+			throw new IllegalStateException("Scenario " + scenario + " has no hitsplats for the pre-filter to reject");
+		}
+
+		// Run the remaining tick numbers through, so the client stand-in has boxed each of them.
+		while (tick != 0)
+		{
+			playAnimations();
+			for (HitsplatApplied hitsplat : scene.hitsplatsByTick[tick % CombatScene.CYCLE_TICKS])
+			{
+				combatEvents.onHitsplatApplied(hitsplat);
+			}
+			endTick();
+			advanceTick();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS_PER_INVOCATION)
+	public int rejectedHitsplat()
+	{
+		for (int i = 0; i < EVENTS_PER_INVOCATION; i++)
+		{
+			combatEvents.onHitsplatApplied(nextRejectedHitsplat());
+		}
+		return dispatched.hitsplats;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS_PER_INVOCATION)
+	public int sceneHitsplat()
+	{
+		for (int i = 0; i < EVENTS_PER_INVOCATION; i++)
+		{
+			combatEvents.onHitsplatApplied(nextSceneHitsplat());
+		}
+		return dispatched.hitsplats;
+	}
+
+	/**
+	 * The current tick's next rejected hitsplat, ending ticks whose rejected hitsplats are used up.
+	 */
+	private HitsplatApplied nextRejectedHitsplat()
+	{
+		while (true)
+		{
+			HitsplatApplied[] rejected = rejectedByTick[tick % CombatScene.CYCLE_TICKS];
+			if (eventCursor < rejected.length)
+			{
+				return rejected[eventCursor++];
+			}
+			endTick();
+			advanceTick();
+		}
+	}
+
+	/**
+	 * The current tick's next hitsplat, playing the tick's animations before its first one and ending ticks
+	 * whose hitsplats are used up.
+	 */
+	private HitsplatApplied nextSceneHitsplat()
+	{
+		while (true)
+		{
+			HitsplatApplied[] hitsplats = scene.hitsplatsByTick[tick % CombatScene.CYCLE_TICKS];
+			if (eventCursor == 0)
+			{
+				playAnimations();
+			}
+			if (eventCursor < hitsplats.length)
+			{
+				return hitsplats[eventCursor++];
+			}
+			endTick();
+			advanceTick();
+		}
+	}
+
+	private void advanceTick()
+	{
+		tick = (tick + 1) & TICK_MASK;
+		scene.client.setTickCount(tick);
+		eventCursor = 0;
+	}
+
+	private void playAnimations()
+	{
+		for (AnimationChanged animation : scene.animationsByTick[tick % CombatScene.CYCLE_TICKS])
+		{
+			combatEvents.onAnimationChanged(animation);
+		}
+	}
+
+	private void endTick()
+	{
+		detector.onGameTick(combatEvents.getWorld());
+		combatEvents.onGameTick();
+	}
+
+	private static final class DispatchCounter implements CombatEventPipeline.Consumer
+	{
+		private int hitsplats;
+
+		@Override
+		public void onHitsplat(CombatEventPipeline.ClassifiedHitsplat hitsplat)
+		{
+			hitsplats++;
+		}
+	}
+}
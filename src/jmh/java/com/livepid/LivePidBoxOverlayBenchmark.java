@@ -0,0 +1,70 @@
+package com.livepid;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-frame cost of {@link LivePidBoxOverlay} while the PID status is unchanged, with the GC profiler the
+ * build enables. {@code updatePanel} is the overlay's own work and should report a {@code gc.alloc.rate.norm}
+ * of 0 bytes/op; {@code render} is the whole frame as the overlay manager calls it, latency probe, snapshot
+ * reads and RuneLite's panel layout and drawing into an offscreen image included, so any bytes/op it reports
+ * beyond {@code updatePanel}'s come from RuneLite's panel.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LivePidBoxOverlayBenchmark
+{
+	private LivePidBoxOverlay overlay;
+	private PidSnapshot snapshot;
+	private BufferedImage frame;
+	private Graphics2D graphics;
+
+	@Setup
+	public void setUp()
+	{
+		snapshot = new PidSnapshot(PidStatus.ON_PID, 1, 67, true, "Opponent", 0, 1, 0, 0);
+		LivePidPlugin plugin = new LivePidPlugin(snapshot, ConfigSnapshot.of(new LivePidConfig()
+		{
+		}));
+
+		overlay = new LivePidBoxOverlay(plugin);
+		frame = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+		graphics = frame.createGraphics();
+		overlay.render(graphics);
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		graphics.dispose();
+	}
+
+	@Benchmark
+	public void updatePanel()
+	{
+		overlay.updatePanel(snapshot, true);
+	}
+
+	@Benchmark
+	public Dimension render()
+	{
+		return overlay.render(graphics);
+	}
+}
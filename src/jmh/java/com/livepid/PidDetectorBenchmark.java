@@ -0,0 +1,189 @@
+package com.livepid;
+
+import java.util.concurrent.TimeUnit;
+import net.runelite.api.events.AnimationChanged;
+import net.runelite.api.events.HitsplatApplied;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-call cost of the {@link PidDetector} event handlers, fed through the {@link CombatEventPipeline}. Run with {@code ./gradlew jmh}; the GC profiler
+ * is enabled in the build, so results include {@code gc.alloc.rate.norm} (bytes/op) next to ns/op.
+ *
+ * <p>Every benchmark replays the scenario in order, a tick at a time, so each call sees the world state and
+ * pending attacks of the tick it belongs to. The per-event benchmarks handle {@link #EVENTS_PER_INVOCATION}
+ * events of their type per invocation and end each tick in the loop as its events run out, so their ns/op
+ * include that tick's end spread over its events; {@link #onGameTick} gives the size of that share.
+ * {@link #onAnimationChanged} ends its ticks without their hitsplats, leaving swings to resolve by deadline,
+ * so a hitsplat-heavy scenario does not drown the swings it measures.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PidDetectorBenchmark
+{
+	static final int EVENTS_PER_INVOCATION = 256;
+
+	private static final int TICK_MASK = 0xFFFF;
+
+	@Param
+	public CombatScene.Scenario scenario;
+
+	@Param({"false", "true"})
+	public boolean tickBatched;
+
+	private CombatScene scene;
+	private PidDetector detector;
+	private CombatEventPipeline combatEvents;
+	private int tick;
+	/** Next event of the current tick for the per-event benchmarks. */
+	private int eventCursor;
+
+	@Setup
+	public void setUp()
+	{
+		scene = CombatScene.build(scenario);
+		detector = new PidDetector(scene.client.client());
+		detector.setTickBatched(tickBatched);
+		combatEvents = new CombatEventPipeline(scene.client.client());
+		combatEvents.addConsumer(detector);
+		tick = 0;
+		scene.client.setTickCount(tick);
+
+		// Run the tick numbers through once, so the client stand-in has boxed each of them, then a few full
+		// cycles more so pending samples and the resolved status are in steady state.
+		for (int i = 0; i <= TICK_MASK + CombatScene.CYCLE_TICKS * 4; i++)
+		{
+			fullTick();
+		}
+		advanceTick();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS_PER_INVOCATION)
+	public PidStatus onAnimationChanged()
+	{
+		for (int i = 0; i < EVENTS_PER_INVOCATION; i++)
+		{
+			combatEvents.onAnimationChanged(nextAnimation());
+		}
+		return detector.getCurrentPidStatus();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS_PER_INVOCATION)
+	public PidStatus onHitsplatApplied()
+	{
+		for (int i = 0; i < EVENTS_PER_INVOCATION; i++)
+		{
+			combatEvents.onHitsplatApplied(nextHitsplat());
+		}
+		return detector.getCurrentPidStatus();
+	}
+
+	/**
+	 * Ending a tick of swings without hitsplats, which resolve by deadline; the tick's swings are part of the cost.
+	 */
+	@Benchmark
+	public PidStatus onGameTick()
+	{
+		playAnimations();
+		endTick();
+		advanceTick();
+		return detector.getCurrentPidStatus();
+	}
+
+	/**
+	 * One whole game tick of the scenario: every animation and hitsplat event in the tick, then the tick itself.
+	 */
+	@Benchmark
+	public PidStatus fullTick()
+	{
+		playAnimations();
+		playHitsplats();
+		endTick();
+		advanceTick();
+		return detector.getCurrentPidStatus();
+	}
+
+	/**
+	 * The current tick's next animation, ending ticks whose animations are used up.
+	 */
+	private AnimationChanged nextAnimation()
+	{
+		while (true)
+		{
+			AnimationChanged[] animations = scene.animationsByTick[tick % CombatScene.CYCLE_TICKS];
+			if (eventCursor < animations.length)
+			{
+				return animations[eventCursor++];
+			}
+			endTick();
+			advanceTick();
+		}
+	}
+
+	/**
+	 * The current tick's next hitsplat, playing the tick's animations before its first one and ending ticks
+	 * whose hitsplats are used up.
+	 */
+	private HitsplatApplied nextHitsplat()
+	{
+		while (true)
+		{
+			HitsplatApplied[] hitsplats = scene.hitsplatsByTick[tick % CombatScene.CYCLE_TICKS];
+			if (eventCursor == 0)
+			{
+				playAnimations();
+			}
+			if (eventCursor < hitsplats.length)
+			{
+				return hitsplats[eventCursor++];
+			}
+			endTick();
+			advanceTick();
+		}
+	}
+
+	private void advanceTick()
+	{
+		tick = (tick + 1) & TICK_MASK;
+		scene.client.setTickCount(tick);
+		eventCursor = 0;
+	}
+
+	private void playAnimations()
+	{
+		for (AnimationChanged animation : scene.animationsByTick[tick % CombatScene.CYCLE_TICKS])
+		{
+			combatEvents.onAnimationChanged(animation);
+		}
+	}
+
+	private void playHitsplats()
+	{
+		for (HitsplatApplied hitsplat : scene.hitsplatsByTick[tick % CombatScene.CYCLE_TICKS])
+		{
+			combatEvents.onHitsplatApplied(hitsplat);
+		}
+	}
+
+	private void endTick()
+	{
+		detector.onGameTick(combatEvents.getWorld());
+		combatEvents.onGameTick();
+	}
+}
@@ -1,9 +1,23 @@
 package com.livepid;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.Nullable;
 
+/**
+ * Maps attack animation ids to PID buckets, and to the {@link ExpectedDelayTable} with any per-animation
+ * delay overrides. The built-in definitions are read from the bundled {@value #BUILT_IN_RESOURCE};
+ * {@link AttackAnimationDefinitionsLoader} can swap in a user's override at runtime. Definitions are parsed
+ * into a dense byte table and a delay table off the hot path and published together with a single volatile
+ * write, so a lookup never sees a half-built table or buckets from one file with delays from another.
+ */
 final class AttackAnimationBuckets
 {
 	enum Bucket
@@ -15,35 +29,19 @@ final class AttackAnimationBuckets
 		MAGIC
 	}
 
-	private static final Map<Integer, Bucket> BUCKETS = new HashMap<>();
+	static final String BUILT_IN_RESOURCE = "attack-animations.txt";
+	/** Highest id a definition may use; 0xFFFF is the client's and the trace format's "no animation". */
+	static final int MAX_ANIMATION_ID = 0xFFFE;
 
-	static
-	{
-		registerMelee(
-			245, 376, 381, 386, 390, 393, 395, 400, 401, 406, 407, 414, 419, 422, 423, 428, 429, 440,
-			923, 1058, 1060, 1062, 1132, 1203, 1378, 1658, 1665, 1667, 1710, 1711, 1872, 2062, 2066, 2067,
-			2068, 2078, 2080, 2081, 2082, 2661, 2890, 3157, 3297, 3298, 3299, 3852, 4198, 4503, 5247, 5865,
-			5870, 6118, 6147, 7004, 7045, 7054, 7055, 7511, 7514, 7515, 7516, 7638, 7639, 7640, 7641, 7642,
-			7643, 7644, 7645, 8010, 8056, 8145, 8288, 8289, 8290, 9171, 9471, 9544, 9963, 10172, 10173, 10989,
-			11124
-		);
-
-		registerRangedStandard(
-			426, 1074, 2075, 4230, 7552, 7557, 9166, 9168, 9206, 9858, 9964, 10914, 10923
-		);
-
-		registerRangedThrown(
-			929, 1068, 5061, 7521, 7554, 7617, 7618, 8194, 8195, 8291, 8292, 10656, 11057, 11060
-		);
-
-		registerRangedBallista(7218, 7555, 7556);
-
-		registerMagic(
-			708, 710, 724, 811, 1161, 1163, 1164, 1165, 1166, 1168, 1169, 1576, 8532, 8972, 8977, 9144,
-			9145, 9493, 9961, 10091, 10092, 10501, 11423, 11429, 11430, 12394,
-			711, 727, 763, 1162, 1167, 1978, 1979, 7853, 7854, 7855, 7856
-		);
-	}
+	/** Starts a line of on-PID delays for one animation instead of a bucket's animation ids. */
+	static final String DELAY_KEYWORD = "DELAY";
+
+	private static final Bucket[] BUCKET_VALUES = Bucket.values();
+	private static final byte NO_BUCKET = 0;
+
+	private static final Definitions BUILT_IN = loadBuiltIn();
+
+	private static volatile Definitions definitions = BUILT_IN;
 
 	private AttackAnimationBuckets()
 	{
@@ -52,39 +50,235 @@ final class AttackAnimationBuckets
 	@Nullable
 	static Bucket getBucket(int animationId)
 	{
-		return BUCKETS.get(animationId);
+		return definitions.getBucket(animationId);
+	}
+
+	/**
+	 * The active definitions, for a caller that needs a bucket and its delays from the same file.
+	 */
+	static Definitions getDefinitions()
+	{
+		return definitions;
+	}
+
+	static ExpectedDelayTable getDelayTable()
+	{
+		return definitions.getDelays();
+	}
+
+	/**
+	 * Replaces the active definitions with ones from {@link #parse}.
+	 */
+	static void install(Definitions parsed)
+	{
+		definitions = parsed;
+	}
+
+	static void installBuiltIn()
+	{
+		definitions = BUILT_IN;
+	}
+
+	static boolean isBuiltInInstalled()
+	{
+		return definitions == BUILT_IN;
+	}
+
+	/**
+	 * Parses definitions for {@link #install}. Each non-blank line is a bucket name followed by animation ids,
+	 * separated by whitespace or commas, or {@value #DELAY_KEYWORD}, an animation id and its on-PID delays
+	 * in ticks from distance 0 up, the last one holding for every longer distance; {@code #} starts a
+	 * comment.
+	 *
+	 * @throws IllegalArgumentException if a line names an unknown bucket or an id out of range, an id is
+	 *                                  assigned to two buckets, there are no ids at all, or a delay line is
+	 *                                  repeated, negative, longer than the table or for an id in no bucket
+	 */
+	static Definitions parse(Reader reader, String source) throws IOException
+	{
+		byte[] table = new byte[1024];
+		int maxId = -1;
+		Map<Integer, int[]> delayRows = new HashMap<>();
+		Map<Integer, Integer> delayLines = new HashMap<>();
+		BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+		String line;
+		int lineNumber = 0;
+		while ((line = lines.readLine()) != null)
+		{
+			lineNumber++;
+			int comment = line.indexOf('#');
+			String[] tokens = (comment < 0 ? line : line.substring(0, comment)).trim().split("[\\s,]+");
+			if (tokens[0].isEmpty())
+			{
+				continue;
+			}
+
+			if (DELAY_KEYWORD.equals(tokens[0]))
+			{
+				int animationId = parseAnimationId(tokens.length > 1 ? tokens[1] : "", source, lineNumber);
+				if (tokens.length < 3 || tokens.length - 2 > ExpectedDelayTable.MAX_DISTANCE + 1)
+				{
+					throw invalid(source, lineNumber, "expected 1 to " + (ExpectedDelayTable.MAX_DISTANCE + 1)
+						+ " delays for animation " + animationId);
+				}
+				int[] delays = new int[tokens.length - 2];
+				for (int i = 0; i < delays.length; i++)
+				{
+					delays[i] = parseDelay(tokens[i + 2], source, lineNumber);
+				}
+				if (delayRows.put(animationId, delays) != null)
+				{
+					throw invalid(source, lineNumber, "delays for animation " + animationId + " are already defined");
+				}
+				delayLines.put(animationId, lineNumber);
+				continue;
+			}
+
+			Bucket bucket = bucketNamed(tokens[0]);
+			if (bucket == null)
+			{
+				throw invalid(source, lineNumber, "unknown bucket " + tokens[0]);
+			}
+			for (int i = 1; i < tokens.length; i++)
+			{
+				int animationId = parseAnimationId(tokens[i], source, lineNumber);
+				if (animationId >= table.length)
+				{
+					table = Arrays.copyOf(table, Math.max(table.length * 2, animationId + 1));
+				}
+				byte entry = (byte) (bucket.ordinal() + 1);
+				if (table[animationId] != NO_BUCKET && table[animationId] != entry)
+				{
+					throw invalid(source, lineNumber, "animation " + animationId + " is already "
+						+ BUCKET_VALUES[table[animationId] - 1]);
+				}
+				table[animationId] = entry;
+				maxId = Math.max(maxId, animationId);
+			}
+		}
+
+		if (maxId < 0)
+		{
+			throw new IllegalArgumentException(source + ": no attack animations defined");
+		}
+
+		Map<Integer, ExpectedDelayTable.DelayModel> overrides = new HashMap<>();
+		for (Map.Entry<Integer, int[]> row : delayRows.entrySet())
+		{
+			int animationId = row.getKey();
+			if (animationId > maxId || table[animationId] == NO_BUCKET)
+			{
+				throw invalid(source, delayLines.get(animationId), "animation " + animationId + " is in no bucket");
+			}
+			int[] delays = row.getValue();
+			overrides.put(animationId, distance -> delays[Math.min(distance, delays.length - 1)]);
+		}
+		return new Definitions(Arrays.copyOf(table, maxId + 1), new ExpectedDelayTable(overrides));
 	}
 
-	private static void registerMelee(int... animationIds)
+	private static int parseAnimationId(String token, String source, int lineNumber)
 	{
-		register(Bucket.MELEE, animationIds);
+		int animationId;
+		try
+		{
+			animationId = Integer.parseInt(token);
+		}
+		catch (NumberFormatException ex)
+		{
+			throw invalid(source, lineNumber, "not an animation id: " + token);
+		}
+		if (animationId < 0 || animationId > MAX_ANIMATION_ID)
+		{
+			throw invalid(source, lineNumber, "animation id out of range: " + animationId);
+		}
+		return animationId;
 	}
 
-	private static void registerRangedStandard(int... animationIds)
+	private static int parseDelay(String token, String source, int lineNumber)
 	{
-		register(Bucket.RANGED_STANDARD, animationIds);
+		int delay;
+		try
+		{
+			delay = Integer.parseInt(token);
+		}
+		catch (NumberFormatException ex)
+		{
+			throw invalid(source, lineNumber, "not a delay: " + token);
+		}
+		if (delay < 0)
+		{
+			throw invalid(source, lineNumber, "negative delay: " + delay);
+		}
+		return delay;
 	}
 
-	private static void registerRangedThrown(int... animationIds)
+	@Nullable
+	private static Bucket bucketNamed(String name)
 	{
-		register(Bucket.RANGED_THROWN, animationIds);
+		for (Bucket bucket : BUCKET_VALUES)
+		{
+			if (bucket.name().equals(name))
+			{
+				return bucket;
+			}
+		}
+		return null;
 	}
 
-	private static void registerRangedBallista(int... animationIds)
+	private static IllegalArgumentException invalid(String source, int lineNumber, String message)
 	{
-		register(Bucket.RANGED_BALLISTA, animationIds);
+		return new IllegalArgumentException(source + ":" + lineNumber + ": " + message);
 	}
 
-	private static void registerMagic(int... animationIds)
+	private static Definitions loadBuiltIn()
 	{
-		register(Bucket.MAGIC, animationIds);
+		try (InputStream in = AttackAnimationBuckets.class.getResourceAsStream(BUILT_IN_RESOURCE))
+		{
+			if (in == null)
+			{
+				throw new IllegalStateException("Missing bundled " + BUILT_IN_RESOURCE);
+			}
+			return parse(new InputStreamReader(in, StandardCharsets.UTF_8), BUILT_IN_RESOURCE);
+		}
+		catch (IOException ex)
+		{
+			throw new IllegalStateException("Unable to read bundled " + BUILT_IN_RESOURCE, ex);
+		}
 	}
 
-	private static void register(Bucket bucket, int... animationIds)
+	/**
+	 * One parsed set of definitions, installed as a whole.
+	 */
+	static final class Definitions
 	{
-		for (int animationId : animationIds)
+		/**
+		 * Dense lookup indexed by animation id, holding {@code bucket ordinal + 1} ({@link #NO_BUCKET} for
+		 * ids that are not attack animations).
+		 */
+		private final byte[] bucketByAnimation;
+		private final ExpectedDelayTable delays;
+
+		private Definitions(byte[] bucketByAnimation, ExpectedDelayTable delays)
+		{
+			this.bucketByAnimation = bucketByAnimation;
+			this.delays = delays;
+		}
+
+		@Nullable
+		Bucket getBucket(int animationId)
+		{
+			if (animationId < 0 || animationId >= bucketByAnimation.length)
+			{
+				return null;
+			}
+
+			int entry = bucketByAnimation[animationId];
+			return entry == NO_BUCKET ? null : BUCKET_VALUES[entry - 1];
+		}
+
+		ExpectedDelayTable getDelays()
 		{
-			BUCKETS.put(animationId, bucket);
+			return delays;
 		}
 	}
 }
@@ -0,0 +1,126 @@
+package com.livepid;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Watches a user override of the attack animation definitions and installs it into
+ * {@link AttackAnimationBuckets} whenever it changes. Polling and parsing run on a background thread; a
+ * missing or invalid file puts the built-in definitions back.
+ */
+@Slf4j
+class AttackAnimationDefinitionsLoader
+{
+	static final long POLL_INTERVAL_SECONDS = 5;
+
+	private final File file;
+	private final ScheduledExecutorService poller;
+
+	/** Modification time and length of the file as last seen; -1 while it was absent. */
+	private long loadedModified = -1;
+	private long loadedLength = -1;
+
+	/** Set by {@link #close()}; a poll still running after that must not install anything. Guarded by this. */
+	private boolean closed;
+
+	AttackAnimationDefinitionsLoader(File file)
+	{
+		this.file = file;
+		this.poller = Executors.newSingleThreadScheduledExecutor(r ->
+		{
+			Thread thread = new Thread(r, "live-pid-definitions-loader");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	File getFile()
+	{
+		return file;
+	}
+
+	void start()
+	{
+		poller.scheduleWithFixedDelay(this::poll, 0, POLL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stops polling and restores the built-in definitions. A poll that is still parsing when this returns
+	 * finds the loader closed and discards its result, so the built-in definitions stay installed.
+	 */
+	void close()
+	{
+		poller.shutdownNow();
+		synchronized (this)
+		{
+			closed = true;
+			AttackAnimationBuckets.installBuiltIn();
+		}
+	}
+
+	/**
+	 * Reloads the file if it changed since the last poll. Runs on the poller thread, or directly in tests.
+	 */
+	void poll()
+	{
+		long modified = file.isFile() ? file.lastModified() : -1;
+		long length = modified < 0 ? -1 : file.length();
+		if (modified == loadedModified && length == loadedLength)
+		{
+			return;
+		}
+		loadedModified = modified;
+		loadedLength = length;
+
+		if (modified < 0)
+		{
+			if (!AttackAnimationBuckets.isBuiltInInstalled())
+			{
+				log.info("Attack animation override {} removed, using built-in definitions", file);
+				install(null);
+			}
+			return;
+		}
+
+		try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8))
+		{
+			AttackAnimationBuckets.Definitions definitions = AttackAnimationBuckets.parse(reader, file.getName());
+			if (install(definitions))
+			{
+				log.info("Loaded attack animation definitions from {}", file);
+			}
+		}
+		catch (IOException | IllegalArgumentException ex)
+		{
+			log.warn("Ignoring attack animation override {}, using built-in definitions: {}", file, ex.getMessage());
+			install(null);
+		}
+	}
+
+	/**
+	 * Installs the given definitions, or the built-in ones for null, unless the loader was closed meanwhile.
+	 */
+	private synchronized boolean install(AttackAnimationBuckets.Definitions definitions)
+	{
+		if (closed)
+		{
+			return false;
+		}
+		if (definitions == null)
+		{
+			AttackAnimationBuckets.installBuiltIn();
+		}
+		else
+		{
+			AttackAnimationBuckets.install(definitions);
+		}
+		return true;
+	}
+}
@@ -0,0 +1,292 @@
+package com.livepid;
+
+import java.util.Arrays;
+import net.runelite.api.Client;
+import net.runelite.api.Hitsplat;
+import net.runelite.api.HitsplatID;
+import net.runelite.api.Player;
+import net.runelite.api.events.AnimationChanged;
+import net.runelite.api.events.HitsplatApplied;
+
+/**
+ * Classifies each combat event from the client once and hands the result to every registered
+ * {@link Consumer}, so the detector, the combat-visibility tracker and anything added later share one set of
+ * client queries and bucket lookups. The local player, their target and the distance between them come from
+ * one {@link WorldState} per tick, which events hand on to consumers. Classified events are reused between
+ * calls: consumers read them during the callback and must not keep them.
+ *
+ * <p>In crowded scenes most hitsplats involve neither the local player nor their target. Those are rejected
+ * before classification using only the hitsplat type, {@link Hitsplat#isMine()}, the local player's target
+ * and whether the victim targets the local player, which the {@link WorldState} reads once per victim per
+ * tick. Neither the filter nor the classification walks the scene's players.
+ */
+final class CombatEventPipeline
+{
+	interface Consumer
+	{
+		/**
+		 * The local player started a recognized attack animation.
+		 */
+		default void onLocalAttack(LocalAttack attack)
+		{
+		}
+
+		/**
+		 * A hitsplat landed on a player.
+		 */
+		default void onHitsplat(ClassifiedHitsplat hitsplat)
+		{
+		}
+	}
+
+	private final WorldState world;
+	private final LocalAttack attack = new LocalAttack();
+	private final ClassifiedHitsplat hitsplat = new ClassifiedHitsplat();
+	private Consumer[] consumers = new Consumer[0];
+
+	CombatEventPipeline(Client client)
+	{
+		this.world = new WorldState(client);
+	}
+
+	/**
+	 * The tick's shared view of the local player and their target.
+	 */
+	WorldState getWorld()
+	{
+		return world;
+	}
+
+	/**
+	 * Registers a consumer; consumers are called in registration order.
+	 */
+	void addConsumer(Consumer consumer)
+	{
+		consumers = Arrays.copyOf(consumers, consumers.length + 1);
+		consumers[consumers.length - 1] = consumer;
+	}
+
+	/**
+	 * Starts a new {@link WorldState}. Call once per game tick, after every other reader of the ending tick's
+	 * state.
+	 */
+	void onGameTick()
+	{
+		world.invalidate();
+	}
+
+	void onAnimationChanged(AnimationChanged event)
+	{
+		Player localPlayer = world.getLocalPlayer();
+		if (localPlayer == null || event.getActor() != localPlayer)
+		{
+			return;
+		}
+
+		int animationId = localPlayer.getAnimation();
+		AttackAnimationBuckets.Definitions definitions = AttackAnimationBuckets.getDefinitions();
+		AttackAnimationBuckets.Bucket bucket = definitions.getBucket(animationId);
+		if (bucket == null)
+		{
+			return;
+		}
+
+		// A new target's hitsplats can land in the same tick as the first swing at them.
+		world.refreshTarget();
+		attack.set(world, bucket, definitions.getDelays().delays(bucket, animationId));
+		for (Consumer consumer : consumers)
+		{
+			consumer.onLocalAttack(attack);
+		}
+	}
+
+	void onHitsplatApplied(HitsplatApplied event)
+	{
+		if (!(event.getActor() instanceof Player))
+		{
+			return;
+		}
+
+		Hitsplat applied = event.getHitsplat();
+		if (applied == null)
+		{
+			return;
+		}
+
+		Player victim = (Player) event.getActor();
+		if (isIrrelevant(victim, applied))
+		{
+			return;
+		}
+
+		Player localPlayer = world.getLocalPlayer();
+		hitsplat.set(world.getTick(), victim, world.getIdentity(victim), world.getName(victim),
+			applied.getAmount(),
+			isLocalOutgoing(victim, applied),
+			localPlayer != null && victim == localPlayer);
+		for (Consumer consumer : consumers)
+		{
+			consumer.onHitsplat(hitsplat);
+		}
+	}
+
+	/**
+	 * Pre-filter: true for hitsplats that can be neither outgoing nor incoming. Anything it lets through is
+	 * still classified by {@link #isLocalOutgoing}, which reads the same per-tick interaction.
+	 */
+	private boolean isIrrelevant(Player victim, Hitsplat hitsplat)
+	{
+		Player localPlayer = world.getLocalPlayer();
+		if (localPlayer == null || hitsplat.isMine() || victim == localPlayer)
+		{
+			return false;
+		}
+
+		int type = hitsplat.getHitsplatType();
+		if (type == HitsplatID.DAMAGE_ME || type == HitsplatID.BLOCK_ME)
+		{
+			return false;
+		}
+		if (type != HitsplatID.DAMAGE_OTHER && type != HitsplatID.BLOCK_OTHER)
+		{
+			return true;
+		}
+		return victim != world.getInteracting() && !world.isTargetingLocal(victim);
+	}
+
+	private boolean isLocalOutgoing(Player victim, Hitsplat hitsplat)
+	{
+		if (hitsplat.isMine())
+		{
+			return true;
+		}
+
+		int type = hitsplat.getHitsplatType();
+		if (type == HitsplatID.DAMAGE_ME || type == HitsplatID.BLOCK_ME)
+		{
+			return true;
+		}
+
+		if (type != HitsplatID.DAMAGE_OTHER && type != HitsplatID.BLOCK_OTHER)
+		{
+			return false;
+		}
+
+		return world.getLocalPlayer() != null
+			&& (world.getInteracting() == victim || world.isTargetingLocal(victim));
+	}
+
+	/**
+	 * A recognized attack animation on the local player.
+	 */
+	static final class LocalAttack
+	{
+		private WorldState world;
+		private AttackAnimationBuckets.Bucket bucket;
+		private int[] delays;
+
+		private void set(WorldState world, AttackAnimationBuckets.Bucket bucket, int[] delays)
+		{
+			this.world = world;
+				this.bucket = bucket;
+			this.delays = delays;
+		}
+
+		int getTick()
+		{
+			return world.getTick();
+		}
+
+		/**
+		 * The tick's local player and target, including a target the swing itself just started on.
+		 */
+		WorldState getWorld()
+		{
+			return world;
+		}
+
+		AttackAnimationBuckets.Bucket getBucket()
+		{
+			return bucket;
+		}
+
+		/**
+		 * On-PID delays by distance for this animation, from the definitions its bucket came from; shared, so
+		 * read with {@link ExpectedDelayTable#lookup} and never modified.
+		 */
+		int[] getDelays()
+		{
+			return delays;
+		}
+	}
+
+	/**
+	 * A hitsplat on a player, with its victim's identity and direction relative to the local player.
+	 */
+	static final class ClassifiedHitsplat
+	{
+		private int tick;
+		private Player victim;
+		private int victimIdentity;
+		private String victimName;
+		private int amount;
+		private boolean outgoing;
+		private boolean incoming;
+
+		private void set(int tick, Player victim, int victimIdentity, String victimName, int amount,
+			boolean outgoing, boolean incoming)
+		{
+			this.tick = tick;
+			this.victim = victim;
+			this.victimIdentity = victimIdentity;
+			this.victimName = victimName;
+			this.amount = amount;
+			this.outgoing = outgoing;
+			this.incoming = incoming;
+		}
+
+		int getTick()
+		{
+			return tick;
+		}
+
+		Player getVictim()
+		{
+			return victim;
+		}
+
+		/**
+		 * {@link PlayerIdentity} of the victim, or {@link PlayerIdentity#NONE} if their name is not loaded.
+		 */
+		int getVictimIdentity()
+		{
+			return victimIdentity;
+		}
+
+		String getVictimName()
+		{
+			return victimName;
+		}
+
+		int getAmount()
+		{
+			return amount;
+		}
+
+		/**
+		 * Whether the local player dealt the hit.
+		 */
+		boolean isOutgoing()
+		{
+			return outgoing;
+		}
+
+		/**
+		 * Whether the hit landed on the local player.
+		 */
+		boolean isIncoming()
+		{
+			return incoming;
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package com.livepid;
+
+/**
+ * Remembers when the local player last started an attack, for hiding the indicator out of combat.
+ */
+final class CombatVisibilityTracker implements CombatEventPipeline.Consumer
+{
+	static final int COMBAT_HIDE_TIMEOUT_TICKS = 25;
+
+	private int lastOwnAttackTick = Integer.MIN_VALUE;
+
+	@Override
+	public void onLocalAttack(CombatEventPipeline.LocalAttack attack)
+	{
+		lastOwnAttackTick = attack.getTick();
+	}
+
+	/**
+	 * Whether the local player attacked within the last {@link #COMBAT_HIDE_TIMEOUT_TICKS} ticks.
+	 */
+	boolean isInCombat(int tick)
+	{
+		return lastOwnAttackTick != Integer.MIN_VALUE && tick - lastOwnAttackTick <= COMBAT_HIDE_TIMEOUT_TICKS;
+	}
+
+	void reset()
+	{
+		lastOwnAttackTick = Integer.MIN_VALUE;
+	}
+}
@@ -0,0 +1,95 @@
+package com.livepid;
+
+/**
+ * Immutable copy of {@link LivePidConfig}, built by the plugin at start-up and on every config change, so
+ * render and tick paths read plain fields instead of going through the config proxy.
+ */
+final class ConfigSnapshot
+{
+	private final PidIndicatorMode mode;
+	private final int textSize;
+	private final boolean hideWhenOutOfCombat;
+	private final boolean showConfidence;
+	private final boolean tickBatchedResolution;
+	private final boolean debugLatency;
+	private final boolean recordTraces;
+	private final boolean exportMetrics;
+	private final PidEventSink eventExport;
+	private final PidEventFormat eventExportFormat;
+	private final int eventExportPort;
+
+	private ConfigSnapshot(LivePidConfig config)
+	{
+		this.mode = config.mode();
+		this.textSize = config.textSize();
+		this.hideWhenOutOfCombat = config.hideWhenOutOfCombat();
+		this.showConfidence = config.showConfidence();
+		this.tickBatchedResolution = config.tickBatchedResolution();
+		this.debugLatency = config.debugLatency();
+		this.recordTraces = config.recordTraces();
+		this.exportMetrics = config.exportMetrics();
+		this.eventExport = config.eventExport();
+		this.eventExportFormat = config.eventExportFormat();
+		this.eventExportPort = config.eventExportPort();
+	}
+
+	static ConfigSnapshot of(LivePidConfig config)
+	{
+		return new ConfigSnapshot(config);
+	}
+
+	PidIndicatorMode getMode()
+	{
+		return mode;
+	}
+
+	int getTextSize()
+	{
+		return textSize;
+	}
+
+	boolean isHideWhenOutOfCombat()
+	{
+		return hideWhenOutOfCombat;
+	}
+
+	boolean isShowConfidence()
+	{
+		return showConfidence;
+	}
+
+	boolean isTickBatchedResolution()
+	{
+		return tickBatchedResolution;
+	}
+
+	boolean isDebugLatency()
+	{
+		return debugLatency;
+	}
+
+	boolean isRecordTraces()
+	{
+		return recordTraces;
+	}
+
+	boolean isExportMetrics()
+	{
+		return exportMetrics;
+	}
+
+	PidEventSink getEventExport()
+	{
+		return eventExport;
+	}
+
+	PidEventFormat getEventExportFormat()
+	{
+		return eventExportFormat;
+	}
+
+	int getEventExportPort()
+	{
+		return eventExportPort;
+	}
+}
@@ -0,0 +1,166 @@
+package com.livepid;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Counts what happens to every swing the detector tracks, by attack bucket, and how many ticks it takes
+ * from the first swing at an opponent to the first resolved status against them. Updated on the client
+ * thread with plain array increments; use {@link #copy()} to hand a consistent view to another thread.
+ */
+final class DetectionMetrics
+{
+	enum Outcome
+	{
+		/** Matched a hitsplat whose delay identified ON PID. */
+		RESOLVED_ON,
+		/** Matched a hitsplat whose delay identified OFF PID. */
+		RESOLVED_OFF,
+		/** Matched a hitsplat whose delay fit neither ON nor OFF PID. */
+		UNRESOLVED,
+		/** Aged out of the window without any hitsplat on its victim. */
+		EXPIRED,
+		/** Overwritten by another swing while still pending. */
+		REPLACED,
+		/** Predicted OFF PID when its on-PID tick passed without a hitsplat, but no later hitsplat confirmed it. */
+		PREDICTED_OFF
+	}
+
+	/** Ticks-to-resolution values at or above this share the last histogram bucket. */
+	static final int MAX_RESOLUTION_TICKS = 64;
+
+	private static final Outcome[] OUTCOMES = Outcome.values();
+	private static final AttackAnimationBuckets.Bucket[] BUCKETS = AttackAnimationBuckets.Bucket.values();
+
+	private final long[] outcomeCounts = new long[OUTCOMES.length * BUCKETS.length];
+	private final long[] ticksToFirstResolution = new long[MAX_RESOLUTION_TICKS + 1];
+	private long unmatchedHitsplats;
+	private long resolutions;
+
+	void recordOutcome(Outcome outcome, AttackAnimationBuckets.Bucket bucket)
+	{
+		outcomeCounts[outcome.ordinal() * BUCKETS.length + bucket.ordinal()]++;
+	}
+
+	/**
+	 * Records an outgoing hitsplat that no swing ever accounted for.
+	 */
+	void recordUnmatchedHitsplat()
+	{
+		unmatchedHitsplats++;
+	}
+
+	void recordTicksToFirstResolution(int ticks)
+	{
+		ticksToFirstResolution[Math.max(0, Math.min(ticks, MAX_RESOLUTION_TICKS))]++;
+		resolutions++;
+	}
+
+	long getCount(Outcome outcome, AttackAnimationBuckets.Bucket bucket)
+	{
+		return outcomeCounts[outcome.ordinal() * BUCKETS.length + bucket.ordinal()];
+	}
+
+	long getCount(Outcome outcome)
+	{
+		long count = 0;
+		for (AttackAnimationBuckets.Bucket bucket : BUCKETS)
+		{
+			count += getCount(outcome, bucket);
+		}
+		return count;
+	}
+
+	long getUnmatchedHitsplats()
+	{
+		return unmatchedHitsplats;
+	}
+
+	/**
+	 * Number of opponents whose first resolution took {@code ticks} ticks after the first swing at them; the
+	 * last bucket, {@link #MAX_RESOLUTION_TICKS}, also holds everything slower.
+	 */
+	long getTicksToFirstResolution(int ticks)
+	{
+		return ticksToFirstResolution[ticks];
+	}
+
+	/**
+	 * Returns the smallest tick count that covers the given quantile of first resolutions, or -1 if none.
+	 */
+	int getTicksToFirstResolutionPercentile(double quantile)
+	{
+		if (resolutions == 0)
+		{
+			return -1;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(quantile * resolutions));
+		long seen = 0;
+		for (int ticks = 0; ticks <= MAX_RESOLUTION_TICKS; ticks++)
+		{
+			seen += ticksToFirstResolution[ticks];
+			if (seen >= rank)
+			{
+				return ticks;
+			}
+		}
+		return MAX_RESOLUTION_TICKS;
+	}
+
+	void reset()
+	{
+		Arrays.fill(outcomeCounts, 0);
+		Arrays.fill(ticksToFirstResolution, 0);
+		unmatchedHitsplats = 0;
+		resolutions = 0;
+	}
+
+	DetectionMetrics copy()
+	{
+		DetectionMetrics copy = new DetectionMetrics();
+		System.arraycopy(outcomeCounts, 0, copy.outcomeCounts, 0, outcomeCounts.length);
+		System.arraycopy(ticksToFirstResolution, 0, copy.ticksToFirstResolution, 0, ticksToFirstResolution.length);
+		copy.unmatchedHitsplats = unmatchedHitsplats;
+		copy.resolutions = resolutions;
+		return copy;
+	}
+
+	/**
+	 * Plain-text summary: an outcome table by bucket, unmatched hitsplats and the ticks-to-resolution histogram.
+	 */
+	String formatSummary()
+	{
+		StringBuilder out = new StringBuilder();
+		out.append(String.format(Locale.ROOT, "%-16s", "bucket"));
+		for (Outcome outcome : OUTCOMES)
+		{
+			out.append(String.format(Locale.ROOT, " %13s", outcome.name().toLowerCase(Locale.ROOT)));
+		}
+		out.append('\n');
+		for (AttackAnimationBuckets.Bucket bucket : BUCKETS)
+		{
+			out.append(String.format(Locale.ROOT, "%-16s", bucket.name()));
+			for (Outcome outcome : OUTCOMES)
+			{
+				out.append(String.format(Locale.ROOT, " %13d", getCount(outcome, bucket)));
+			}
+			out.append('\n');
+		}
+
+		out.append('\n').append("unmatched_hitsplats ").append(unmatchedHitsplats).append('\n');
+		out.append("first_resolutions ").append(resolutions)
+			.append(" p50=").append(getTicksToFirstResolutionPercentile(0.5))
+			.append(" p90=").append(getTicksToFirstResolutionPercentile(0.9))
+			.append('\n');
+		for (int ticks = 0; ticks <= MAX_RESOLUTION_TICKS; ticks++)
+		{
+			if (ticksToFirstResolution[ticks] != 0)
+			{
+				out.append(ticks == MAX_RESOLUTION_TICKS ? ticks + "+" : Integer.toString(ticks))
+					.append(" ticks: ").append(ticksToFirstResolution[ticks]).append('\n');
+			}
+		}
+		return out.toString();
+	}
+}
@@ -0,0 +1,76 @@
+package com.livepid;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes {@link DetectionMetrics#formatSummary()} to a local file on a background thread. Each export
+ * replaces the whole file through a temporary sibling, so readers never see a half-written summary.
+ */
+@Slf4j
+class DetectionMetricsExporter
+{
+	private final File file;
+	private final ExecutorService writer;
+
+	DetectionMetricsExporter(File file)
+	{
+		this.file = file;
+		this.writer = Executors.newSingleThreadExecutor(r ->
+		{
+			Thread thread = new Thread(r, "live-pid-metrics-writer");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	File getFile()
+	{
+		return file;
+	}
+
+	/**
+	 * Queues a summary of {@code metrics}, which must not change afterwards; pass a {@link DetectionMetrics#copy()}.
+	 */
+	void export(DetectionMetrics metrics)
+	{
+		LocalDateTime exportedAt = LocalDateTime.now();
+		writer.execute(() -> write("# Live Pid detection metrics, " + exportedAt + "\n" + metrics.formatSummary()));
+	}
+
+	/**
+	 * Stops the writer thread once queued exports are on disk.
+	 */
+	void close()
+	{
+		writer.shutdown();
+	}
+
+	private void write(String summary)
+	{
+		File parent = file.getParentFile();
+		if (parent != null && !parent.exists() && !parent.mkdirs())
+		{
+			log.warn("Unable to create metrics directory {}", parent);
+			return;
+		}
+
+		File temp = new File(file.getPath() + ".tmp");
+		try
+		{
+			Files.write(temp.toPath(), summary.getBytes(StandardCharsets.UTF_8));
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (IOException ex)
+		{
+			log.warn("Unable to write PID detection metrics {}", file, ex);
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package com.livepid;
+
+import java.util.Map;
+
+/**
+ * Precomputed on-PID cast-to-hit delays, indexed by bucket and distance, with optional per-animation rows for
+ * weapons and spells whose delay differs from their bucket. Distances past {@link #MAX_DISTANCE} use the last
+ * column; no attack lands from that far. The active table comes with the attack animation definitions, see
+ * {@link AttackAnimationBuckets#getDelayTable()}, whose {@code DELAY} lines become the overrides.
+ */
+final class ExpectedDelayTable
+{
+	static final int MAX_DISTANCE = 31;
+
+	private static final AttackAnimationBuckets.Bucket[] BUCKETS = AttackAnimationBuckets.Bucket.values();
+
+	private final int[][] delaysByBucket = new int[BUCKETS.length][];
+
+	/** Sparse, indexed by animation id; null entries fall back to the bucket row. */
+	private final int[][] delaysByAnimation;
+
+	/**
+	 * Builds the table from the bucket formulas and {@code overrides}, keyed by animation id.
+	 */
+	ExpectedDelayTable(Map<Integer, DelayModel> overrides)
+	{
+		for (AttackAnimationBuckets.Bucket bucket : BUCKETS)
+		{
+			delaysByBucket[bucket.ordinal()] = buildRow(distance -> bucketDelay(bucket, distance));
+		}
+
+		int maxAnimationId = -1;
+		for (int animationId : overrides.keySet())
+		{
+			if (animationId < 0)
+			{
+				throw new IllegalArgumentException("Negative animation id: " + animationId);
+			}
+			maxAnimationId = Math.max(maxAnimationId, animationId);
+		}
+
+		delaysByAnimation = new int[maxAnimationId + 1][];
+		for (Map.Entry<Integer, DelayModel> override : overrides.entrySet())
+		{
+			delaysByAnimation[override.getKey()] = buildRow(override.getValue());
+		}
+	}
+
+	/**
+	 * Returns the delay row for a swing: the animation's override if it has one, otherwise its bucket's.
+	 * The row is shared and must not be modified.
+	 */
+	int[] delays(AttackAnimationBuckets.Bucket bucket, int animationId)
+	{
+		if (animationId >= 0 && animationId < delaysByAnimation.length)
+		{
+			int[] override = delaysByAnimation[animationId];
+			if (override != null)
+			{
+				return override;
+			}
+		}
+		return delaysByBucket[bucket.ordinal()];
+	}
+
+	int expectedOnPidDelay(AttackAnimationBuckets.Bucket bucket, int animationId, int distance)
+	{
+		return lookup(delays(bucket, animationId), distance);
+	}
+
+	static int lookup(int[] delays, int distance)
+	{
+		return delays[Math.min(distance, MAX_DISTANCE)];
+	}
+
+	private static int[] buildRow(DelayModel model)
+	{
+		int[] row = new int[MAX_DISTANCE + 1];
+		for (int distance = 0; distance <= MAX_DISTANCE; distance++)
+		{
+			row[distance] = model.expectedOnPidDelay(distance);
+			if (row[distance] < 0)
+			{
+				throw new IllegalArgumentException("Negative delay " + row[distance] + " at distance " + distance);
+			}
+		}
+		return row;
+	}
+
+	private static int bucketDelay(AttackAnimationBuckets.Bucket bucket, int distance)
+	{
+		switch (bucket)
+		{
+			case MELEE:
+				return 0;
+			case MAGIC:
+				return 1 + (1 + distance) / 3;
+			case RANGED_THROWN:
+				return 1 + distance / 6;
+			case RANGED_BALLISTA:
+				if (distance == 3 || distance == 4)
+				{
+					return 1;
+				}
+				return 1 + (3 + distance) / 6;
+			case RANGED_STANDARD:
+			default:
+				return 1 + (3 + distance) / 6;
+		}
+	}
+
+	@FunctionalInterface
+	interface DelayModel
+	{
+		int expectedOnPidDelay(int distance);
+	}
+}
@@ -0,0 +1,99 @@
+package com.livepid;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-bucket latency histogram in nanoseconds. Buckets are powers of two split into
+ * {@link #SUB_BUCKETS} linear steps, so any recorded value is reported within 25% of its true size.
+ *
+ * <p>Recording takes no locks and never allocates. Each histogram expects a single writer thread; readers
+ * on other threads may see a slightly stale view, which is fine for monitoring.
+ */
+final class LatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS = 2;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = Long.SIZE * SUB_BUCKETS;
+
+	private final long[] counts = new long[BUCKETS];
+	private volatile long total;
+	private volatile long max;
+
+	void record(long nanos)
+	{
+		if (nanos < 0)
+		{
+			nanos = 0;
+		}
+		counts[bucketOf(nanos)]++;
+		if (nanos > max)
+		{
+			max = nanos;
+		}
+		total = total + 1;
+	}
+
+	long getCount()
+	{
+		return total;
+	}
+
+	long getMax()
+	{
+		return max;
+	}
+
+	/**
+	 * Returns the upper bound of the bucket holding the given quantile (0 to 1), or 0 if nothing was recorded.
+	 */
+	long getPercentile(double quantile)
+	{
+		long count = total;
+		if (count == 0)
+		{
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(quantile * count));
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++)
+		{
+			seen += counts[bucket];
+			if (seen >= rank)
+			{
+				return Math.min(upperBound(bucket), max);
+			}
+		}
+		return max;
+	}
+
+	void reset()
+	{
+		Arrays.fill(counts, 0);
+		max = 0;
+		total = 0;
+	}
+
+	static int bucketOf(long nanos)
+	{
+		if (nanos < SUB_BUCKETS)
+		{
+			return (int) nanos;
+		}
+		int magnitude = 63 - Long.numberOfLeadingZeros(nanos);
+		int subBucket = (int) (nanos >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return magnitude * SUB_BUCKETS + subBucket;
+	}
+
+	static long upperBound(int bucket)
+	{
+		if (bucket < SUB_BUCKETS)
+		{
+			return bucket;
+		}
+		int magnitude = bucket / SUB_BUCKETS;
+		long subBucket = bucket % SUB_BUCKETS;
+		long step = 1L << (magnitude - SUB_BUCKET_BITS);
+		return (1L << magnitude) + (subBucket + 1) * step - 1;
+	}
+}
@@ -0,0 +1,83 @@
+package com.livepid;
+
+/**
+ * Optional timing of the plugin's event handlers and overlay renders. While disabled, {@link #start()} is a
+ * field read and a branch, and {@link #stop} returns straight away, so the probes can stay compiled in.
+ */
+final class LatencyProbes
+{
+	enum Probe
+	{
+		ANIMATION_CHANGED("Animation"),
+		HITSPLAT_APPLIED("Hitsplat"),
+		GAME_TICK("Game tick"),
+		INDICATOR_RENDER("Head render"),
+		BOX_RENDER("Box render");
+
+		private final String label;
+
+		Probe(String label)
+		{
+			this.label = label;
+		}
+
+		String getLabel()
+		{
+			return label;
+		}
+	}
+
+	/** Returned by {@link #start()} while disabled. */
+	static final long NOT_TIMED = Long.MIN_VALUE;
+
+	private static final Probe[] PROBES = Probe.values();
+
+	private final LatencyHistogram[] histograms = new LatencyHistogram[PROBES.length];
+	private volatile boolean enabled;
+
+	LatencyProbes()
+	{
+		for (int i = 0; i < histograms.length; i++)
+		{
+			histograms[i] = new LatencyHistogram();
+		}
+	}
+
+	/**
+	 * Turns timing on or off; turning it on starts from empty histograms.
+	 */
+	void setEnabled(boolean enabled)
+	{
+		if (enabled && !this.enabled)
+		{
+			for (LatencyHistogram histogram : histograms)
+			{
+				histogram.reset();
+			}
+		}
+		this.enabled = enabled;
+	}
+
+	boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	long start()
+	{
+		return enabled ? System.nanoTime() : NOT_TIMED;
+	}
+
+	void stop(Probe probe, long start)
+	{
+		if (start != NOT_TIMED)
+		{
+			histograms[probe.ordinal()].record(System.nanoTime() - start);
+		}
+	}
+
+	LatencyHistogram getHistogram(Probe probe)
+	{
+		return histograms[probe.ordinal()];
+	}
+}
@@ -4,50 +4,127 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
+import java.util.List;
 import javax.inject.Inject;
 import net.runelite.client.ui.overlay.OverlayLayer;
 import net.runelite.client.ui.overlay.OverlayPosition;
 import net.runelite.client.ui.overlay.OverlayPriority;
 import net.runelite.client.ui.overlay.OverlayPanel;
+import net.runelite.client.ui.overlay.components.LayoutableRenderableEntity;
 import net.runelite.client.ui.overlay.components.TitleComponent;
 
+/**
+ * Square PID box. The panel keeps its children between frames and only swaps them when the snapshot's
+ * status version or shown confidence changes, so {@link #updatePanel} allocates nothing for an unchanged
+ * status; the panel layout and drawing in {@code super.render} still belong to RuneLite.
+ */
 class LivePidBoxOverlay extends OverlayPanel
 {
 	private static final String LABEL = "PID";
 	private static final int BOX_SIZE = 36;
 	private static final Color BOX_COLOR = new Color(33, 33, 33, 210);
+	private static final Color CONFIDENCE_COLOR = new Color(189, 189, 189);
+	private static final int NO_VERSION = -1;
+	private static final int HIDDEN_CONFIDENCE = -1;
 
 	private final LivePidPlugin plugin;
-	private final LivePidConfig config;
+	private final TitleComponent[] titles = new TitleComponent[PidStatus.values().length];
+	/** Confidence lines by percent, built on first use. */
+	private final TitleComponent[] confidenceLines = new TitleComponent[101];
+
+	/** Render thread only, apart from {@link #invalidate()} before the overlay is registered. */
+	private int renderedVersion = NO_VERSION;
+	private int renderedConfidence = HIDDEN_CONFIDENCE;
 
 	@Inject
-	LivePidBoxOverlay(LivePidPlugin plugin, LivePidConfig config)
+	LivePidBoxOverlay(LivePidPlugin plugin)
 	{
 		this.plugin = plugin;
-		this.config = config;
 		setLayer(OverlayLayer.ABOVE_WIDGETS);
 		setPosition(OverlayPosition.TOP_LEFT);
 		setPriority(OverlayPriority.HIGH);
+		setClearChildren(false);
+
+		panelComponent.setBackgroundColor(BOX_COLOR);
+		panelComponent.setPreferredSize(new Dimension(BOX_SIZE, BOX_SIZE));
+		panelComponent.setBorder(new Rectangle(6, 8, 6, 6));
+		for (PidStatus status : PidStatus.values())
+		{
+			titles[status.ordinal()] = TitleComponent.builder()
+				.text(LABEL)
+				.color(plugin.getPidColor(status))
+				.build();
+		}
 	}
 
 	@Override
 	public Dimension render(Graphics2D graphics)
 	{
-		if (config.mode() != PidIndicatorMode.OVERLAY || !plugin.shouldShowIndicator())
+		LatencyProbes probes = plugin.getLatencyProbes();
+		long start = probes.start();
+		try
+		{
+			return renderBox(graphics);
+		}
+		finally
+		{
+			probes.stop(LatencyProbes.Probe.BOX_RENDER, start);
+		}
+	}
+
+	private Dimension renderBox(Graphics2D graphics)
+	{
+		ConfigSnapshot config = plugin.getConfigSnapshot();
+		PidSnapshot snapshot = plugin.getSnapshot();
+		if (config.getMode() != PidIndicatorMode.OVERLAY || !snapshot.isVisible())
 		{
 			return null;
 		}
 
-		panelComponent.getChildren().clear();
-		panelComponent.setBackgroundColor(BOX_COLOR);
-		panelComponent.setPreferredSize(new Dimension(BOX_SIZE, BOX_SIZE));
-		panelComponent.setBorder(new Rectangle(6, 8, 6, 6));
-		panelComponent.getChildren().add(
-			TitleComponent.builder()
-				.text(LABEL)
-				.color(plugin.getPidColor(plugin.getPidStatus()))
-				.build()
-		);
+		updatePanel(snapshot, config.isShowConfidence());
 		return super.render(graphics);
 	}
+
+	/**
+	 * Forces the next frame to rebuild the panel contents, e.g. after a new detector was created. Call it
+	 * before adding the overlay to the overlay manager, which publishes the write to the render thread.
+	 */
+	void invalidate()
+	{
+		renderedVersion = NO_VERSION;
+	}
+
+	void updatePanel(PidSnapshot snapshot, boolean showConfidence)
+	{
+		int version = snapshot.getStatusVersion();
+		int confidence = showConfidence ? snapshot.getConfidencePercent() : HIDDEN_CONFIDENCE;
+		if (version == renderedVersion && confidence == renderedConfidence)
+		{
+			return;
+		}
+
+		renderedVersion = version;
+		renderedConfidence = confidence;
+		List<LayoutableRenderableEntity> children = panelComponent.getChildren();
+		children.clear();
+		children.add(titles[snapshot.getStatus().ordinal()]);
+		if (confidence != HIDDEN_CONFIDENCE)
+		{
+			children.add(getConfidenceLine(confidence));
+		}
+	}
+
+	private TitleComponent getConfidenceLine(int percent)
+	{
+		TitleComponent line = confidenceLines[percent];
+		if (line == null)
+		{
+			line = TitleComponent.builder()
+				.text(percent + "%")
+				.color(CONFIDENCE_COLOR)
+				.build();
+			confidenceLines[percent] = line;
+		}
+		return line;
+	}
 }
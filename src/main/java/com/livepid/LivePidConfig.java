@@ -40,4 +40,85 @@ public interface LivePidConfig extends Config
 	{
 		return true;
 	}
+
+	@ConfigItem(
+		keyName = "showConfidence",
+		name = "Show Confidence",
+		description = "Show how sure the detector is about the current PID status next to the label"
+	)
+	default boolean showConfidence()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "tickBatchedResolution",
+		name = "Tick-Batched Resolution",
+		description = "Resolve each tick's swing and hitsplats together at the end of the tick, independent of event order"
+	)
+	default boolean tickBatchedResolution()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "debugLatency",
+		name = "Debug Latency",
+		description = "Time event handling and overlay rendering, and show p50/p99/max in a developer overlay"
+	)
+	default boolean debugLatency()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "recordTraces",
+		name = "Record Fight Traces",
+		description = "Record the combat inputs used for PID detection to .runelite/live-pid/traces for offline replay"
+	)
+	default boolean recordTraces()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "exportMetrics",
+		name = "Export Detection Metrics",
+		description = "Periodically write swing outcomes and time to first PID resolution to .runelite/live-pid/metrics.txt"
+	)
+	default boolean exportMetrics()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "eventExport",
+		name = "Stream PID Events",
+		description = "Stream target changes, PID samples and status changes to .runelite/live-pid/events or a localhost TCP reader"
+	)
+	default PidEventSink eventExport()
+	{
+		return PidEventSink.OFF;
+	}
+
+	@ConfigItem(
+		keyName = "eventExportFormat",
+		name = "PID Event Format",
+		description = "One JSON object per line, or fixed-size binary records"
+	)
+	default PidEventFormat eventExportFormat()
+	{
+		return PidEventFormat.NDJSON;
+	}
+
+	@Range(min = 1024, max = 65535)
+	@ConfigItem(
+		keyName = "eventExportPort",
+		name = "PID Event Port",
+		description = "Localhost port a TCP reader listens on for streamed PID events"
+	)
+	default int eventExportPort()
+	{
+		return 47570;
+	}
 }
@@ -5,6 +5,8 @@ import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
 import javax.inject.Inject;
 import net.runelite.api.Player;
 import net.runelite.api.Point;
@@ -15,15 +17,23 @@ import net.runelite.client.ui.overlay.OverlayPosition;
 class LivePidIndicatorOverlay extends Overlay
 {
 	private static final String LABEL = "PID";
+	private static final PidStatus[] STATUSES = PidStatus.values();
+	/** Label variants per status: the plain label, then one per confidence percent. */
+	private static final int LABEL_VARIANTS = 102;
 
 	private final LivePidPlugin plugin;
-	private final LivePidConfig config;
+
+	/** Outlined labels by status and variant, rendered with {@link #labelFont}; built on first use. */
+	private final BufferedImage[][] labels = new BufferedImage[STATUSES.length][LABEL_VARIANTS];
+	private ConfigSnapshot labelConfig;
+	private Font labelBaseFont;
+	private Font labelFont;
+	private int labelAscent;
 
 	@Inject
-	LivePidIndicatorOverlay(LivePidPlugin plugin, LivePidConfig config)
+	LivePidIndicatorOverlay(LivePidPlugin plugin)
 	{
 		this.plugin = plugin;
-		this.config = config;
 		setLayer(OverlayLayer.ABOVE_SCENE);
 		setPosition(OverlayPosition.DYNAMIC);
 	}
@@ -31,7 +41,23 @@ class LivePidIndicatorOverlay extends Overlay
 	@Override
 	public Dimension render(Graphics2D graphics)
 	{
-		if (config.mode() != PidIndicatorMode.ABOVE_HEAD || !plugin.shouldShowIndicator())
+		LatencyProbes probes = plugin.getLatencyProbes();
+		long start = probes.start();
+		try
+		{
+			return renderIndicator(graphics);
+		}
+		finally
+		{
+			probes.stop(LatencyProbes.Probe.INDICATOR_RENDER, start);
+		}
+	}
+
+	private Dimension renderIndicator(Graphics2D graphics)
+	{
+		ConfigSnapshot config = plugin.getConfigSnapshot();
+		PidSnapshot snapshot = plugin.getSnapshot();
+		if (config.getMode() != PidIndicatorMode.ABOVE_HEAD || !snapshot.isVisible())
 		{
 			return null;
 		}
@@ -48,21 +74,59 @@ class LivePidIndicatorOverlay extends Overlay
 			return null;
 		}
 
-		Font originalFont = graphics.getFont();
-		Font sizedFont = originalFont.deriveFont((float) config.textSize());
-		graphics.setFont(sizedFont);
+		int variant = config.isShowConfidence() ? snapshot.getConfidencePercent() + 1 : 0;
+		BufferedImage label = getLabel(graphics, config, snapshot.getStatus(), variant);
+		// Centre on the text itself, not the outline pixel.
+		int x = basePoint.getX() - (label.getWidth() - 1) / 2;
+		int y = basePoint.getY() - labelAscent * 2 + 2;
+		graphics.drawImage(label, x, y, null);
+		return null;
+	}
 
-		FontMetrics fm = graphics.getFontMetrics();
-		int labelWidth = fm.stringWidth(LABEL);
-		int labelHeight = fm.getAscent();
+	private BufferedImage getLabel(Graphics2D graphics, ConfigSnapshot config, PidStatus status, int variant)
+	{
+		// A new config snapshot means some setting changed; the text size may be among them.
+		Font baseFont = graphics.getFont();
+		if (config != labelConfig || baseFont != labelBaseFont)
+		{
+			labelConfig = config;
+			labelBaseFont = baseFont;
+			labelFont = baseFont.deriveFont((float) config.getTextSize());
+			labelAscent = graphics.getFontMetrics(labelFont).getAscent();
+			for (BufferedImage[] statusLabels : labels)
+			{
+				Arrays.fill(statusLabels, null);
+			}
+		}
 
-		int x = basePoint.getX() - labelWidth / 2;
-		int y = basePoint.getY() - labelHeight + 2;
+		BufferedImage label = labels[status.ordinal()][variant];
+		if (label == null)
+		{
+			String text = variant == 0 ? LABEL : LABEL + " " + (variant - 1) + "%";
+			label = renderLabel(graphics, text, plugin.getPidColor(status));
+			labels[status.ordinal()][variant] = label;
+		}
+		return label;
+	}
 
-		Color textColor = plugin.getPidColor(plugin.getPidStatus());
-		drawOutlinedText(graphics, LABEL, x, y, textColor);
-		graphics.setFont(originalFont);
-		return null;
+	private BufferedImage renderLabel(Graphics2D graphics, String text, Color color)
+	{
+		FontMetrics fm = graphics.getFontMetrics(labelFont);
+		// One extra pixel each way for the shadow outline.
+		BufferedImage image = new BufferedImage(fm.stringWidth(text) + 1, fm.getAscent() + fm.getDescent() + 1,
+			BufferedImage.TYPE_INT_ARGB);
+		Graphics2D imageGraphics = image.createGraphics();
+		try
+		{
+			imageGraphics.setRenderingHints(graphics.getRenderingHints());
+			imageGraphics.setFont(labelFont);
+			drawOutlinedText(imageGraphics, text, 0, fm.getAscent(), color);
+		}
+		finally
+		{
+			imageGraphics.dispose();
+		}
+		return image;
 	}
 
 	private static void drawOutlinedText(Graphics2D graphics, String text, int x, int y, Color color)
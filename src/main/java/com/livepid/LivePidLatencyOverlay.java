@@ -0,0 +1,88 @@
+package com.livepid;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.util.List;
+import javax.inject.Inject;
+import net.runelite.client.ui.overlay.OverlayLayer;
+import net.runelite.client.ui.overlay.OverlayPanel;
+import net.runelite.client.ui.overlay.OverlayPosition;
+import net.runelite.client.ui.overlay.components.LayoutableRenderableEntity;
+import net.runelite.client.ui.overlay.components.LineComponent;
+import net.runelite.client.ui.overlay.components.TitleComponent;
+
+/**
+ * Developer overlay listing p50/p99/max latency per probe, in microseconds. Only drawn while latency
+ * debugging is enabled; the text is rebuilt about once per game tick rather than every frame.
+ */
+class LivePidLatencyOverlay extends OverlayPanel
+{
+	private static final long REFRESH_NANOS = 600_000_000L;
+	private static final int PANEL_WIDTH = 190;
+	private static final Color HEADER_COLOR = new Color(189, 189, 189);
+
+	private final LivePidPlugin plugin;
+	private long lastRefresh;
+
+	@Inject
+	LivePidLatencyOverlay(LivePidPlugin plugin)
+	{
+		this.plugin = plugin;
+		setLayer(OverlayLayer.ABOVE_WIDGETS);
+		setPosition(OverlayPosition.TOP_LEFT);
+		setClearChildren(false);
+		panelComponent.setPreferredSize(new Dimension(PANEL_WIDTH, 0));
+	}
+
+	@Override
+	public Dimension render(Graphics2D graphics)
+	{
+		LatencyProbes probes = plugin.getLatencyProbes();
+		if (!probes.isEnabled())
+		{
+			lastRefresh = 0;
+			return null;
+		}
+
+		long now = System.nanoTime();
+		if (lastRefresh == 0 || now - lastRefresh >= REFRESH_NANOS)
+		{
+			lastRefresh = now;
+			refresh(probes);
+		}
+		return super.render(graphics);
+	}
+
+	private void refresh(LatencyProbes probes)
+	{
+		List<LayoutableRenderableEntity> children = panelComponent.getChildren();
+		children.clear();
+		children.add(TitleComponent.builder()
+			.text("Live Pid latency (us)")
+			.color(HEADER_COLOR)
+			.build());
+		children.add(LineComponent.builder()
+			.left("")
+			.right("p50 / p99 / max")
+			.rightColor(HEADER_COLOR)
+			.build());
+
+		for (LatencyProbes.Probe probe : LatencyProbes.Probe.values())
+		{
+			LatencyHistogram histogram = probes.getHistogram(probe);
+			children.add(LineComponent.builder()
+				.left(probe.getLabel())
+				.right(String.format("%s / %s / %s",
+					micros(histogram.getPercentile(0.50)),
+					micros(histogram.getPercentile(0.99)),
+					micros(histogram.getMax())))
+				.build());
+		}
+	}
+
+	private static String micros(long nanos)
+	{
+		return String.format("%.1f", nanos / 1000.0);
+	}
+}
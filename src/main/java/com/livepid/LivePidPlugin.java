@@ -2,15 +2,22 @@ package com.livepid;
 
 import com.google.inject.Provides;
 import java.awt.Color;
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import javax.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.Client;
-import net.runelite.api.Player;
 import net.runelite.api.events.AnimationChanged;
+import net.runelite.api.events.GameStateChanged;
 import net.runelite.api.events.GameTick;
 import net.runelite.api.events.HitsplatApplied;
+import net.runelite.api.events.ItemContainerChanged;
+import net.runelite.client.RuneLite;
+import net.runelite.client.callback.ClientThread;
 import net.runelite.client.config.ConfigManager;
 import net.runelite.client.eventbus.Subscribe;
+import net.runelite.client.events.ConfigChanged;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
 import net.runelite.client.ui.overlay.OverlayManager;
@@ -23,14 +30,24 @@ import net.runelite.client.ui.overlay.OverlayManager;
 )
 public class LivePidPlugin extends Plugin
 {
-	private static final int COMBAT_HIDE_TIMEOUT_TICKS = 25;
 	private static final Color PID_ON_COLOR = new Color(67, 160, 71);
 	private static final Color PID_OFF_COLOR = new Color(229, 57, 53);
 	private static final Color PID_UNKNOWN_COLOR = new Color(255, 193, 7);
+	private static final File PLUGIN_DIR = new File(RuneLite.RUNELITE_DIR, "live-pid");
+	private static final File TRACE_DIR = new File(PLUGIN_DIR, "traces");
+	private static final File METRICS_FILE = new File(PLUGIN_DIR, "metrics.txt");
+	private static final File EVENTS_NDJSON_FILE = new File(PLUGIN_DIR, "events.ndjson");
+	private static final File EVENTS_BINARY_FILE = new File(PLUGIN_DIR, "events.bin");
+	private static final File DEFINITIONS_FILE = new File(PLUGIN_DIR, AttackAnimationBuckets.BUILT_IN_RESOURCE);
+	private static final int METRICS_EXPORT_INTERVAL_TICKS = 100;
+	private static final DateTimeFormatter TRACE_FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
 
 	@Inject
 	private Client client;
 
+	@Inject
+	private ClientThread clientThread;
+
 	@Inject
 	private LivePidConfig config;
 
@@ -46,17 +63,59 @@ public class LivePidPlugin extends Plugin
 	@Inject
 	private LivePidBoxOverlay boxOverlay;
 
+	@Inject
+	private LivePidLatencyOverlay latencyOverlay;
+
+	private final LatencyProbes latencyProbes = new LatencyProbes();
+
+	private final CombatVisibilityTracker combatVisibility = new CombatVisibilityTracker();
+
 	private PidDetector pidDetector;
-	private volatile int lastOwnAttackAnimationTick = Integer.MIN_VALUE;
+	private CombatEventPipeline combatEvents;
+	private PidTraceRecorder traceRecorder;
+	private DetectionMetricsExporter metricsExporter;
+	private PidEventExporter eventExporter;
+	private AttackAnimationDefinitionsLoader definitionsLoader;
+	private volatile PidSnapshot snapshot = PidSnapshot.EMPTY;
+	private volatile ConfigSnapshot configSnapshot;
+
+	public LivePidPlugin()
+	{
+	}
+
+	/**
+	 * A plugin that is never started, publishing fixed state to the overlays so they can run without a client.
+	 */
+	LivePidPlugin(PidSnapshot snapshot, ConfigSnapshot configSnapshot)
+	{
+		this.snapshot = snapshot;
+		this.configSnapshot = configSnapshot;
+	}
 
 	@Override
 	protected void startUp()
 	{
 		ensureEnumConfigValue("mode", PidIndicatorMode.class, PidIndicatorMode.OVERLAY);
+		ensureEnumConfigValue("eventExport", PidEventSink.class, PidEventSink.OFF);
+		ensureEnumConfigValue("eventExportFormat", PidEventFormat.class, PidEventFormat.NDJSON);
+		configSnapshot = ConfigSnapshot.of(config);
+		latencyProbes.setEnabled(configSnapshot.isDebugLatency());
+		definitionsLoader = new AttackAnimationDefinitionsLoader(DEFINITIONS_FILE);
+		definitionsLoader.start();
 		pidDetector = new PidDetector(client);
-		lastOwnAttackAnimationTick = Integer.MIN_VALUE;
+		pidDetector.setTickBatched(configSnapshot.isTickBatchedResolution());
+		combatVisibility.reset();
+		combatEvents = new CombatEventPipeline(client);
+		combatEvents.addConsumer(pidDetector);
+		combatEvents.addConsumer(combatVisibility);
+		snapshot = PidSnapshot.EMPTY;
+		updateTraceRecorder();
+		updateMetricsExporter();
+		updateEventExporter();
+		boxOverlay.invalidate();
 		overlayManager.add(indicatorOverlay);
 		overlayManager.add(boxOverlay);
+		overlayManager.add(latencyOverlay);
 		log.debug("Live Pid started");
 	}
 
@@ -65,12 +124,26 @@ public class LivePidPlugin extends Plugin
 	{
 		overlayManager.remove(indicatorOverlay);
 		overlayManager.remove(boxOverlay);
+		overlayManager.remove(latencyOverlay);
+		latencyProbes.setEnabled(false);
+		stopTraceRecorder();
+		stopMetricsExporter();
+		stopEventExporter();
+		if (definitionsLoader != null)
+		{
+			definitionsLoader.close();
+			definitionsLoader = null;
+		}
 		if (pidDetector != null)
 		{
-			pidDetector.reset();
+			// Queued behind the final metrics export, which must read the metrics before they are cleared.
+			PidDetector detector = pidDetector;
+			clientThread.invoke(detector::reset);
 			pidDetector = null;
 		}
-		lastOwnAttackAnimationTick = Integer.MIN_VALUE;
+		combatEvents = null;
+		combatVisibility.reset();
+		snapshot = PidSnapshot.EMPTY;
 		log.debug("Live Pid stopped");
 	}
 
@@ -81,7 +154,21 @@ public class LivePidPlugin extends Plugin
 		{
 			return;
 		}
-		pidDetector.onGameTick();
+		long start = latencyProbes.start();
+		if (traceRecorder != null)
+		{
+			traceRecorder.recordGameTick();
+		}
+		// Read before the pipeline moves on to the next tick's state.
+		int tick = combatEvents.getWorld().getTick();
+		pidDetector.onGameTick(combatEvents.getWorld());
+		combatEvents.onGameTick();
+		publishSnapshot(tick);
+		if (metricsExporter != null && tick % METRICS_EXPORT_INTERVAL_TICKS == 0)
+		{
+			metricsExporter.export(pidDetector.getMetrics().copy());
+		}
+		latencyProbes.stop(LatencyProbes.Probe.GAME_TICK, start);
 	}
 
 	@Subscribe
@@ -91,13 +178,13 @@ public class LivePidPlugin extends Plugin
 		{
 			return;
 		}
-		pidDetector.onAnimationChanged(event);
-
-		Player local = client.getLocalPlayer();
-		if (local != null && event.getActor() == local && AttackAnimationBuckets.getBucket(local.getAnimation()) != null)
+		long start = latencyProbes.start();
+		if (traceRecorder != null)
 		{
-			markOwnAttackAnimation();
+			traceRecorder.recordAnimationChanged(event);
 		}
+		combatEvents.onAnimationChanged(event);
+		latencyProbes.stop(LatencyProbes.Probe.ANIMATION_CHANGED, start);
 	}
 
 	@Subscribe
@@ -107,7 +194,64 @@ public class LivePidPlugin extends Plugin
 		{
 			return;
 		}
-		pidDetector.onHitsplatApplied(event);
+		long start = latencyProbes.start();
+		if (traceRecorder != null)
+		{
+			traceRecorder.recordHitsplatApplied(event);
+		}
+		combatEvents.onHitsplatApplied(event);
+		latencyProbes.stop(LatencyProbes.Probe.HITSPLAT_APPLIED, start);
+	}
+
+	@Subscribe
+	public void onItemContainerChanged(ItemContainerChanged event)
+	{
+		if (pidDetector == null)
+		{
+			return;
+		}
+		if (traceRecorder != null)
+		{
+			traceRecorder.recordItemContainerChanged(event);
+		}
+		pidDetector.onItemContainerChanged(event);
+	}
+
+	@Subscribe
+	public void onGameStateChanged(GameStateChanged event)
+	{
+		if (pidDetector == null)
+		{
+			return;
+		}
+		if (traceRecorder != null)
+		{
+			traceRecorder.recordGameStateChanged(event);
+		}
+		pidDetector.onGameStateChanged(event);
+	}
+
+	@Subscribe
+	public void onConfigChanged(ConfigChanged event)
+	{
+		if (!LivePidConfig.GROUP.equals(event.getGroup()))
+		{
+			return;
+		}
+		configSnapshot = ConfigSnapshot.of(config);
+		// Probes, recorder and snapshot are only touched from the client thread, alongside the events they follow.
+		clientThread.invokeLater(() ->
+		{
+			latencyProbes.setEnabled(configSnapshot.isDebugLatency());
+			if (pidDetector != null)
+			{
+				pidDetector.setTickBatched(configSnapshot.isTickBatchedResolution());
+			}
+			updateTraceRecorder();
+			updateMetricsExporter();
+			updateEventExporter();
+			publishSnapshot(client.getTickCount());
+		});
 	}
 
 	PidDetector getPidDetector()
@@ -120,9 +264,25 @@ public class LivePidPlugin extends Plugin
 		return client;
 	}
 
-	PidStatus getPidStatus()
+	/**
+	 * Config as of the latest change; replaced only when a {@link LivePidConfig#GROUP} value changes.
+	 */
+	ConfigSnapshot getConfigSnapshot()
 	{
-		return pidDetector == null ? PidStatus.UNKNOWN : pidDetector.getCurrentPidStatus();
+		return configSnapshot;
+	}
+
+	LatencyProbes getLatencyProbes()
+	{
+		return latencyProbes;
+	}
+
+	/**
+	 * Latest state published for the overlays; replaced once per game tick.
+	 */
+	PidSnapshot getSnapshot()
+	{
+		return snapshot;
 	}
 
 	Color getPidColor(PidStatus status)
@@ -138,22 +298,127 @@ public class LivePidPlugin extends Plugin
 		}
 	}
 
-	boolean shouldShowIndicator()
+	private void publishSnapshot(int tick)
 	{
-		if (!config.hideWhenOutOfCombat())
+		PidDetector detector = pidDetector;
+		if (detector == null)
 		{
-			return true;
+			snapshot = PidSnapshot.EMPTY;
+			return;
 		}
-		if (lastOwnAttackAnimationTick == Integer.MIN_VALUE)
+
+		snapshot = new PidSnapshot(
+			detector.getCurrentPidStatus(),
+			detector.getStatusVersion(),
+			Math.round(detector.getCurrentConfidence() * 100),
+			shouldShowIndicator(tick),
+			detector.getCurrentTargetName(),
+			detector.getLastResolutionTick(),
+			detector.getOnPidSamples(),
+			detector.getOffPidSamples(),
+			tick);
+	}
+
+	private boolean shouldShowIndicator(int tick)
+	{
+		return !configSnapshot.isHideWhenOutOfCombat() || combatVisibility.isInCombat(tick);
+	}
+
+	private void updateTraceRecorder()
+	{
+		if (pidDetector == null || !configSnapshot.isRecordTraces())
+		{
+			stopTraceRecorder();
+			return;
+		}
+		if (traceRecorder != null)
+		{
+			return;
+		}
+
+		File traceFile = new File(TRACE_DIR, "trace-" + LocalDateTime.now().format(TRACE_FILE_TIMESTAMP) + ".lpt");
+		traceRecorder = new PidTraceRecorder(client, traceFile);
+		log.debug("Recording PID trace to {}", traceFile);
+	}
+
+	private void stopTraceRecorder()
+	{
+		if (traceRecorder != null)
 		{
-			return false;
+			traceRecorder.close();
+			traceRecorder = null;
 		}
-		return client.getTickCount() - lastOwnAttackAnimationTick <= COMBAT_HIDE_TIMEOUT_TICKS;
 	}
 
-	private void markOwnAttackAnimation()
+	private void updateMetricsExporter()
 	{
-		lastOwnAttackAnimationTick = client.getTickCount();
+		if (pidDetector == null || !configSnapshot.isExportMetrics())
+		{
+			stopMetricsExporter();
+			return;
+		}
+		if (metricsExporter == null)
+		{
+			metricsExporter = new DetectionMetricsExporter(METRICS_FILE);
+			log.debug("Exporting PID detection metrics to {}", METRICS_FILE);
+		}
+	}
+
+	private void stopMetricsExporter()
+	{
+		if (metricsExporter != null)
+		{
+			// Final summary, so the file covers the whole session rather than the last full interval. The
+			// metrics are only safe to copy on the client thread, and shutDown() runs elsewhere.
+			DetectionMetricsExporter exporter = metricsExporter;
+			PidDetector detector = pidDetector;
+			metricsExporter = null;
+			clientThread.invoke(() ->
+			{
+				if (detector != null)
+				{
+					exporter.export(detector.getMetrics().copy());
+				}
+				exporter.close();
+			});
+		}
+	}
+
+	private void updateEventExporter()
+	{
+		PidEventSink sink = configSnapshot.getEventExport();
+		if (pidDetector == null || sink == PidEventSink.OFF)
+		{
+			stopEventExporter();
+			return;
+		}
+		PidEventFormat format = configSnapshot.getEventExportFormat();
+		int port = configSnapshot.getEventExportPort();
+		if (eventExporter != null && eventExporter.matches(sink, format, port))
+		{
+			return;
+		}
+
+		stopEventExporter();
+		File file = format == PidEventFormat.BINARY ? EVENTS_BINARY_FILE : EVENTS_NDJSON_FILE;
+		eventExporter = new PidEventExporter(sink, format, file, port);
+		eventExporter.start();
+		pidDetector.setListener(eventExporter);
+		log.debug("Streaming PID events to {}", sink == PidEventSink.FILE ? file : "localhost:" + port);
+	}
+
+	private void stopEventExporter()
+	{
+		if (eventExporter != null)
+		{
+			if (pidDetector != null)
+			{
+				pidDetector.setListener(null);
+			}
+			log.debug("Stopped PID event stream, {} events dropped", eventExporter.getDroppedEvents());
+			eventExporter.close();
+			eventExporter = null;
+		}
 	}
 
 	private <E extends Enum<E>> void ensureEnumConfigValue(String keyName, Class<E> enumType, E fallback)
@@ -0,0 +1,294 @@
+package com.livepid;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-capacity map from {@link PlayerIdentity} to per-opponent PID state, evicting the least recently
+ * engaged opponent when full. Keys live in an open-addressed int table and recency in index-linked lists,
+ * so lookups, inserts and evictions never allocate and memory stays flat however many players pass by.
+ */
+final class OpponentTable
+{
+	static final int DEFAULT_CAPACITY = 32;
+
+	private static final int EMPTY = -1;
+
+	private final Opponent[] opponents;
+	/** Open-addressed key table; each bucket holds an index into {@link #opponents} or {@link #EMPTY}. */
+	private final int[] buckets;
+	private final int bucketMask;
+	/** Recency list over {@link #opponents} indexes, most recent at the head. */
+	private final int[] newer;
+	private final int[] older;
+	private int head = EMPTY;
+	private int tail = EMPTY;
+	private int size;
+
+	OpponentTable(int capacity)
+	{
+		if (capacity <= 0)
+		{
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+
+		opponents = new Opponent[capacity];
+		for (int i = 0; i < capacity; i++)
+		{
+			opponents[i] = new Opponent();
+		}
+		// At most half full, so probe runs stay short.
+		buckets = new int[Integer.highestOneBit(capacity) << 2];
+		bucketMask = buckets.length - 1;
+		Arrays.fill(buckets, EMPTY);
+		newer = new int[capacity];
+		older = new int[capacity];
+	}
+
+	/**
+	 * Returns the opponent's state without touching its recency, or null if it is not tracked.
+	 */
+	Opponent get(int identity)
+	{
+		int bucket = findBucket(identity);
+		return bucket < 0 ? null : opponents[buckets[bucket]];
+	}
+
+	/**
+	 * Returns the opponent's state, creating it if needed, and marks it as the most recently engaged. Creating
+	 * an entry in a full table resets and reuses the least recently engaged one.
+	 */
+	Opponent engage(int identity)
+	{
+		if (identity == PlayerIdentity.NONE)
+		{
+			throw new IllegalArgumentException("No identity");
+		}
+
+		int bucket = findBucket(identity);
+		int index;
+		if (bucket >= 0)
+		{
+			index = buckets[bucket];
+			unlink(index);
+		}
+		else
+		{
+			if (size < opponents.length)
+			{
+				index = size++;
+			}
+			else
+			{
+				index = tail;
+				unlink(index);
+				removeKey(opponents[index].identity);
+			}
+			opponents[index].reset(identity);
+			insertKey(identity, index);
+		}
+
+		linkFirst(index);
+		return opponents[index];
+	}
+
+	int size()
+	{
+		return size;
+	}
+
+	int capacity()
+	{
+		return opponents.length;
+	}
+
+	void clear()
+	{
+		Arrays.fill(buckets, EMPTY);
+		head = EMPTY;
+		tail = EMPTY;
+		size = 0;
+	}
+
+	private int findBucket(int identity)
+	{
+		for (int bucket = hash(identity); ; bucket = (bucket + 1) & bucketMask)
+		{
+			int index = buckets[bucket];
+			if (index == EMPTY)
+			{
+				return -1;
+			}
+			if (opponents[index].identity == identity)
+			{
+				return bucket;
+			}
+		}
+	}
+
+	private void insertKey(int identity, int index)
+	{
+		int bucket = hash(identity);
+		while (buckets[bucket] != EMPTY)
+		{
+			bucket = (bucket + 1) & bucketMask;
+		}
+		buckets[bucket] = index;
+	}
+
+	/**
+	 * Removes a key with backward-shift deletion, so probe chains stay intact without tombstones.
+	 */
+	private void removeKey(int identity)
+	{
+		int hole = findBucket(identity);
+		int bucket = hole;
+		while (true)
+		{
+			bucket = (bucket + 1) & bucketMask;
+			int index = buckets[bucket];
+			if (index == EMPTY)
+			{
+				break;
+			}
+
+			// Move the entry back into the hole unless its home bucket lies cyclically in (hole, bucket].
+			int home = hash(opponents[index].identity);
+			if (((bucket - home) & bucketMask) >= ((bucket - hole) & bucketMask))
+			{
+				buckets[hole] = index;
+				hole = bucket;
+			}
+		}
+		buckets[hole] = EMPTY;
+	}
+
+	private int hash(int identity)
+	{
+		// Identities put the scene index in the high bits; mix so it reaches the low bits too.
+		int h = identity * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & bucketMask;
+	}
+
+	private void unlink(int index)
+	{
+		int newerIndex = newer[index];
+		int olderIndex = older[index];
+		if (newerIndex == EMPTY)
+		{
+			head = olderIndex;
+		}
+		else
+		{
+			older[newerIndex] = olderIndex;
+		}
+		if (olderIndex == EMPTY)
+		{
+			tail = newerIndex;
+		}
+		else
+		{
+			newer[olderIndex] = newerIndex;
+		}
+	}
+
+	private void linkFirst(int index)
+	{
+		newer[index] = EMPTY;
+		older[index] = head;
+		if (head != EMPTY)
+		{
+			newer[head] = index;
+		}
+		head = index;
+		if (tail == EMPTY)
+		{
+			tail = index;
+		}
+	}
+
+	/**
+	 * What the detector has learned about PID against one opponent.
+	 */
+	static final class Opponent
+	{
+		private final PidEstimator estimator = new PidEstimator();
+		private int identity = PlayerIdentity.NONE;
+		private int firstSwingTick = Integer.MIN_VALUE;
+		private int lastResolutionTick = Integer.MIN_VALUE;
+		private int onPidSamples;
+		private int offPidSamples;
+
+		private void reset(int identity)
+		{
+			this.identity = identity;
+			estimator.reset();
+			firstSwingTick = Integer.MIN_VALUE;
+			lastResolutionTick = Integer.MIN_VALUE;
+			onPidSamples = 0;
+			offPidSamples = 0;
+		}
+
+		void onSwing(int tick)
+		{
+			if (firstSwingTick == Integer.MIN_VALUE)
+			{
+				firstSwingTick = tick;
+			}
+		}
+
+		/**
+		 * Records one resolved sample and returns the opponent's updated status estimate.
+		 */
+		PidStatus resolve(PidStatus sample, int tick)
+		{
+			lastResolutionTick = tick;
+			if (sample == PidStatus.ON_PID)
+			{
+				onPidSamples++;
+			}
+			else if (sample == PidStatus.OFF_PID)
+			{
+				offPidSamples++;
+			}
+			return estimator.addSample(sample);
+		}
+
+		int getIdentity()
+		{
+			return identity;
+		}
+
+		PidStatus getStatus()
+		{
+			return estimator.getStatus();
+		}
+
+		float getConfidence()
+		{
+			return estimator.getConfidence();
+		}
+
+		/**
+		 * Tick of the first swing at this opponent since they were last added to the table.
+		 */
+		int getFirstSwingTick()
+		{
+			return firstSwingTick;
+		}
+
+		int getLastResolutionTick()
+		{
+			return lastResolutionTick;
+		}
+
+		int getOnPidSamples()
+		{
+			return onPidSamples;
+		}
+
+		int getOffPidSamples()
+		{
+			return offPidSamples;
+		}
+	}
+}
@@ -1,365 +1,723 @@
 package com.livepid;
 
-import java.util.Locale;
-import net.runelite.api.Actor;
+import java.util.Arrays;
 import net.runelite.api.Client;
-import net.runelite.api.EquipmentInventorySlot;
-import net.runelite.api.Hitsplat;
-import net.runelite.api.HitsplatID;
-import net.runelite.api.InventoryID;
-import net.runelite.api.Item;
-import net.runelite.api.ItemContainer;
-import net.runelite.api.ItemComposition;
 import net.runelite.api.Player;
-import net.runelite.api.events.AnimationChanged;
-import net.runelite.api.events.HitsplatApplied;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.ItemContainerChanged;
 
 /**
  * PID detector based on known attack animation buckets and cast-to-hit timing.
- * Uses a strict single-attempt model: each new attack replaces the previous attempt.
+ * Every swing from the last {@link #MAX_HIT_DELAY_TICKS} ticks stays matchable in a tick-indexed window,
+ * so overlapping attempts from fast weapons or long projectile delays each get their own hitsplat.
+ * Resolved samples feed a per-opponent {@link PidEstimator}, kept for the most recently engaged
+ * {@link OpponentTable#DEFAULT_CAPACITY}, and the current status is always the estimate for the latest target.
+ * Swings and hitsplats arrive already classified from a {@link CombatEventPipeline}.
+ *
+ * <p>By default each event is matched as it arrives, which needs both swing-first and hitsplat-first paths.
+ * In {@linkplain #setTickBatched tick-batched} mode the tick's swing and hitsplats are only buffered, then
+ * resolved together in {@link #onGameTick}: the swing first, then the hitsplats in arrival order. Either
+ * way a swing's target and distance come from the pipeline's {@link WorldState} for the tick. Results then no longer depend on the order the client posts events
+ * within a tick; hitsplats from the tick before a swing are still matched through the early tolerance.
+ *
+ * <p>Each stored swing is also put on a deadline wheel at the tick its hit would land on PID. A non-magic
+ * swing always shows a hitsplat, a block included, so if that tick ends without one the opponent is taken to
+ * be OFF PID right away instead of waiting for the late hitsplat. Magic is left to its hitsplat, since a
+ * splash shows none.
  */
-public class PidDetector
+public class PidDetector implements CombatEventPipeline.Consumer
 {
+	/**
+	 * Told about target changes, resolved samples and status changes as they happen, on the client thread.
+	 */
+	interface Listener
+	{
+		/**
+		 * The player swings are attributed to changed; {@code identity} is {@link PlayerIdentity#NONE} and
+		 * {@code name} null when targeting ended.
+		 */
+		default void onTargetChanged(int tick, int identity, String name)
+		{
+		}
+
+		/**
+		 * A swing against {@code identity} produced a PID sample; {@code predicted} when it was taken because
+		 * the on-PID tick passed without a hitsplat.
+		 */
+		default void onSample(int tick, int identity, PidStatus sample, AttackAnimationBuckets.Bucket bucket,
+			boolean predicted)
+		{
+		}
+
+		/**
+		 * {@link #getCurrentPidStatus()} changed; {@code identity} is the displayed opponent.
+		 */
+		default void onStatusChanged(int tick, int identity, PidStatus status, float confidence)
+		{
+		}
+	}
+
+	private static final Listener NO_LISTENER = new Listener()
+	{
+	};
+
+	/** Size of the pending attack window; a power of two larger than {@link #MAX_HIT_DELAY_TICKS}. */
 	private static final int MAX_SAMPLE_AGE_TICKS = 16;
 	private static final int MAX_HIT_DELAY_TICKS = 12;
 	private static final int EARLY_HITSPLAT_TOLERANCE_TICKS = 1;
+	/** Unmatched hitsplats only need to outlive the early tolerance; a power of two larger than it. */
+	private static final int HITSPLAT_WINDOW_TICKS = 2;
+	private static final int HITSPLATS_PER_TICK = 4;
+	/** Outgoing hitsplats a batched tick can hold; more than this in one tick are counted as unmatched. */
+	private static final int MAX_BATCHED_HITSPLATS = 16;
+	/** On-PID deadlines one tick can hold; a swing that finds its tick full just waits for its hitsplat. */
+	private static final int DEADLINES_PER_TICK = 4;
+	private static final int NO_TICK = Integer.MIN_VALUE;
+	/** Results of {@link #matchPendingAttack}. */
+	private static final int NO_CANDIDATE = 0;
+	private static final int CANDIDATE_UNRESOLVED = 1;
+	private static final int CANDIDATE_RESOLVED = 2;
 	private static final int RECOIL_MIN_DAMAGE = 1;
 	private static final int RECOIL_MAX_DAMAGE = 5;
-	private static final String RING_OF_RECOIL_NAME = "ring of recoil";
-	private static final String RING_OF_SUFFERING_PREFIX = "ring of suffering";
 
 	private final Client client;
-
-	private Player currentTarget;
-	private volatile PidStatus currentPidStatus = PidStatus.UNKNOWN;
-
-	private AttackSample pendingAttackSample;
-	private OutgoingHitsplatSample pendingHitsplatSample;
+	private final RecoilRingTracker recoilRingTracker;
+
+	/** Held by identity rather than reference so a target that left the scene is not kept alive. */
+	private int currentTargetIdentity = PlayerIdentity.NONE;
+	private String currentTargetName;
+	/** Client thread only, like the rest of the detector; overlays read the plugin's published {@link PidSnapshot}. */
+	private PidStatus currentPidStatus = PidStatus.UNKNOWN;
+	/** Bumped after every status change so readers can skip work while it is unchanged. */
+	private int statusVersion;
+	/** Opponent whose status is shown; the latest target, kept after targeting ends. */
+	private int displayedIdentity = PlayerIdentity.NONE;
+
+	private final OpponentTable opponents = new OpponentTable(OpponentTable.DEFAULT_CAPACITY);
+	private final DetectionMetrics metrics = new DetectionMetrics();
+	private Listener listener = NO_LISTENER;
+
+	private final PendingAttack[] pendingAttacks = new PendingAttack[MAX_SAMPLE_AGE_TICKS];
+	private final PendingHitsplat[] pendingHitsplats = new PendingHitsplat[HITSPLAT_WINDOW_TICKS * HITSPLATS_PER_TICK];
+
+	/** Deadline wheel, indexed like the attack window by the tick each swing is due to hit on PID. */
+	private final int[] deadlineTicks = new int[MAX_SAMPLE_AGE_TICKS];
+	private final int[] deadlineCounts = new int[MAX_SAMPLE_AGE_TICKS];
+	private final int[] deadlineAttackTicks = new int[MAX_SAMPLE_AGE_TICKS * DEADLINES_PER_TICK];
+	/** Last tick with an outgoing hitsplat hidden by the recoil filter; its deadlines are not trusted. */
+	private int ignoredHitsplatTick = NO_TICK;
+
+	private boolean tickBatched;
+	/** Tick the batch buffer holds events for, or {@link #NO_TICK} while it is empty. */
+	private int batchTick = NO_TICK;
+	/** Target of the buffered swing, or null if the tick has no swing. */
+	private String batchedTargetName;
+	private int batchedTargetIdentity;
+	private int batchedDistance;
+	private int[] batchedDelays;
+	private AttackAnimationBuckets.Bucket batchedBucket;
+	private final int[] batchedHitsplatIdentities = new int[MAX_BATCHED_HITSPLATS];
+	private final String[] batchedHitsplatNames = new String[MAX_BATCHED_HITSPLATS];
+	private int batchedHitsplatCount;
 
 	PidDetector(Client client)
 	{
 		this.client = client;
+		this.recoilRingTracker = new RecoilRingTracker(client);
+		for (int i = 0; i < pendingAttacks.length; i++)
+		{
+			pendingAttacks[i] = new PendingAttack();
+		}
+		for (int i = 0; i < pendingHitsplats.length; i++)
+		{
+			pendingHitsplats[i] = new PendingHitsplat();
+		}
+		Arrays.fill(deadlineTicks, NO_TICK);
 	}
 
-	public void onGameTick()
+	/**
+	 * Ends the tick {@code world} was captured for. Call before the pipeline moves it on to the next tick,
+	 * so target tracking reuses what the tick's events already read from the client.
+	 */
+	public void onGameTick(WorldState world)
 	{
-		Player localPlayer = client.getLocalPlayer();
-		if (localPlayer == null)
+		int currentTick = world.getTick();
+		if (world.getLocalPlayer() == null)
 		{
-			softReset();
+			softReset(currentTick);
 			return;
 		}
 
-		Actor interacting = localPlayer.getInteracting();
-		if (interacting instanceof Player)
+		flushBatch();
+
+		// Targeting may have changed after the tick's first event without a swing; only that is re-read.
+		world.refreshTarget();
+		if (world.getTarget() != null)
 		{
-			currentTarget = (Player) interacting;
+			setTarget(currentTick, world.getTargetIdentity(), world.getTargetName());
 		}
-		else if (!isSamePlayer(currentTarget, interacting) && !isValidTarget(currentTarget))
+		else if (currentTargetIdentity != PlayerIdentity.NONE && world.findPlayer(currentTargetIdentity) == null)
 		{
-			currentTarget = null;
+			setTarget(currentTick, PlayerIdentity.NONE, null);
 		}
 
-		int tick = client.getTickCount();
-		if (pendingAttackSample != null && tick - pendingAttackSample.attackTick > MAX_SAMPLE_AGE_TICKS)
+		processDeadlines(world, currentTick);
+
+		// Free the slots the next tick will write to; everything they still hold is out of its window.
+		int nextTick = currentTick + 1;
+		PendingAttack expiredAttack = pendingAttacks[nextTick & (MAX_SAMPLE_AGE_TICKS - 1)];
+		if (expiredAttack.tick != NO_TICK)
 		{
-			pendingAttackSample = null;
+			DetectionMetrics.Outcome outcome;
+			if (expiredAttack.predictedOff)
+			{
+				outcome = DetectionMetrics.Outcome.PREDICTED_OFF;
+			}
+			else
+			{
+				outcome = expiredAttack.hitsplatSeen ? DetectionMetrics.Outcome.UNRESOLVED : DetectionMetrics.Outcome.EXPIRED;
+			}
+			metrics.recordOutcome(outcome, expiredAttack.bucket);
+			expiredAttack.clear();
 		}
-		if (pendingHitsplatSample != null && tick - pendingHitsplatSample.hitTick > MAX_SAMPLE_AGE_TICKS)
+		int hitsplatSlot = hitsplatSlotBase(nextTick);
+		for (int i = 0; i < HITSPLATS_PER_TICK; i++)
 		{
-			pendingHitsplatSample = null;
+			PendingHitsplat expiredHitsplat = pendingHitsplats[hitsplatSlot + i];
+			if (expiredHitsplat.tick != NO_TICK)
+			{
+				if (!expiredHitsplat.explained)
+				{
+					metrics.recordUnmatchedHitsplat();
+				}
+				expiredHitsplat.clear();
+			}
 		}
 	}
 
-	public void onAnimationChanged(AnimationChanged event)
+	@Override
+	public void onLocalAttack(CombatEventPipeline.LocalAttack attack)
 	{
-		Player localPlayer = client.getLocalPlayer();
-		if (localPlayer == null || event.getActor() != localPlayer)
+		WorldState world = attack.getWorld();
+		String targetName;
+		int distance;
+		if (world.getTarget() != null)
 		{
-			return;
+			targetName = world.getTargetName();
+			distance = world.getDistance();
 		}
-
-		AttackAnimationBuckets.Bucket bucket = AttackAnimationBuckets.getBucket(localPlayer.getAnimation());
-		if (bucket == null)
+		else
 		{
-			return;
+			// A swing just after targeting ended still belongs to the target, if they are in the scene.
+			Player target = world.findPlayer(currentTargetIdentity);
+			if (target == null)
+			{
+				return;
+			}
+			targetName = target.getName();
+			distance = WorldState.distance(world.getLocalLocation(), target.getWorldLocation());
 		}
-
-		Player target = resolveTarget(localPlayer);
-		if (target == null)
+		if (targetName == null || distance < 0)
 		{
 			return;
 		}
+		int targetIdentity = world.getTarget() != null ? world.getTargetIdentity() : currentTargetIdentity;
 
-		int distance = calculateDistance(localPlayer, target);
-		if (distance < 0)
+		if (!tickBatched)
 		{
+			processAttack(world.getTick(), attack.getDelays(), attack.getBucket(), targetIdentity, targetName, distance);
 			return;
 		}
 
-		String targetName = target.getName();
-		if (targetName == null)
+		startBatch(world.getTick());
+		if (batchedTargetName != null)
 		{
-			return;
+			// Same as a second swing taking over the tick's window slot.
+			metrics.recordOutcome(DetectionMetrics.Outcome.REPLACED, batchedBucket);
 		}
+		batchedTargetIdentity = targetIdentity;
+		batchedTargetName = targetName;
+		batchedDistance = distance;
+		batchedDelays = attack.getDelays();
+		batchedBucket = attack.getBucket();
+	}
 
-		int currentTick = client.getTickCount();
-		currentTarget = target;
-		AttackSample sample = new AttackSample(currentTick, targetName, distance, bucket);
+	private void processAttack(int currentTick, int[] delays, AttackAnimationBuckets.Bucket bucket, int targetIdentity,
+		String targetName, int distance)
+	{
+		opponents.engage(targetIdentity).onSwing(currentTick);
+		setTarget(currentTick, targetIdentity, targetName);
 
-		if (matchesPendingHitsplatSample(sample))
+		int expectedOnPid = ExpectedDelayTable.lookup(delays, distance);
+		if (matchPendingHitsplat(currentTick, targetIdentity, targetName, expectedOnPid, bucket))
 		{
-			resolveSample(sample, pendingHitsplatSample.hitTick);
-			pendingHitsplatSample = null;
-			pendingAttackSample = null;
 			return;
 		}
 
-		// New swing starts a fresh attempt. If this one never matches, keep last PID.
-		pendingAttackSample = sample;
+		// One local swing per tick; it stays matchable until its slot is reused.
+		PendingAttack pending = pendingAttacks[currentTick & (MAX_SAMPLE_AGE_TICKS - 1)];
+		if (pending.tick != NO_TICK)
+		{
+			metrics.recordOutcome(DetectionMetrics.Outcome.REPLACED, pending.bucket);
+		}
+		pending.set(currentTick, targetIdentity, targetName, distance, bucket, expectedOnPid);
+		if (bucket != AttackAnimationBuckets.Bucket.MAGIC && expectedOnPid < MAX_SAMPLE_AGE_TICKS)
+		{
+			scheduleDeadline(currentTick, currentTick + expectedOnPid);
+		}
 	}
 
-	public void onHitsplatApplied(HitsplatApplied event)
+	private void scheduleDeadline(int attackTick, int deadlineTick)
 	{
-		if (!(event.getActor() instanceof Player))
+		int slot = deadlineTick & (MAX_SAMPLE_AGE_TICKS - 1);
+		if (deadlineTicks[slot] != deadlineTick)
 		{
-			return;
+			// Whatever the slot still holds belongs to a tick that was never processed, e.g. a missed game tick.
+			deadlineTicks[slot] = deadlineTick;
+			deadlineCounts[slot] = 0;
+		}
+		if (deadlineCounts[slot] < DEADLINES_PER_TICK)
+		{
+			deadlineAttackTicks[slot * DEADLINES_PER_TICK + deadlineCounts[slot]++] = attackTick;
 		}
+	}
 
-		Player victim = (Player) event.getActor();
-		String victimName = victim.getName();
-		if (victimName == null)
+	/**
+	 * Predicts OFF PID for every swing due to hit on PID this tick that is still waiting for its hitsplat.
+	 * The swing stays pending, so the late hitsplat confirms the prediction instead of being counted again.
+	 */
+	private void processDeadlines(WorldState world, int tick)
+	{
+		int slot = tick & (MAX_SAMPLE_AGE_TICKS - 1);
+		if (deadlineTicks[slot] != tick)
 		{
 			return;
 		}
 
-		Hitsplat hitsplat = event.getHitsplat();
-		if (hitsplat == null)
+		int count = deadlineCounts[slot];
+		deadlineTicks[slot] = NO_TICK;
+		deadlineCounts[slot] = 0;
+		if (ignoredHitsplatTick == tick)
 		{
+			// The missing hitsplat may be the one the recoil filter hid.
 			return;
 		}
 
-		if (shouldIgnoreRecoilHitsplat(hitsplat))
+		for (int i = 0; i < count; i++)
+		{
+			int attackTick = deadlineAttackTicks[slot * DEADLINES_PER_TICK + i];
+			PendingAttack attack = pendingAttacks[attackTick & (MAX_SAMPLE_AGE_TICKS - 1)];
+			if (attack.tick != attackTick || attack.tick + attack.expectedOnPid != tick || attack.predictedOff
+				|| attack.hitsplatSeen || world.findPlayer(attack.victimIdentity) == null)
+			{
+				// Resolved or replaced since, or its victim left, died or was hit off schedule.
+				continue;
+			}
+			attack.predictedOff = true;
+			applySample(tick, attack.victimIdentity, PidStatus.OFF_PID, attack.bucket, true);
+		}
+	}
+
+	@Override
+	public void onHitsplat(CombatEventPipeline.ClassifiedHitsplat hitsplat)
+	{
+		if (!hitsplat.isOutgoing() || hitsplat.getVictimName() == null)
 		{
 			return;
 		}
 
-		if (!isLocalOutgoingHitsplat(victim, hitsplat))
+		if (shouldIgnoreRecoilHitsplat(hitsplat.getAmount()))
 		{
+			ignoredHitsplatTick = hitsplat.getTick();
 			return;
 		}
 
-		int hitTick = client.getTickCount();
-		if (matchesPendingAttackSample(victimName, hitTick))
+		if (!tickBatched)
 		{
-			resolveSample(pendingAttackSample, hitTick);
-			pendingAttackSample = null;
-			pendingHitsplatSample = null;
+			processHitsplat(hitsplat.getTick(), hitsplat.getVictimIdentity(), hitsplat.getVictimName());
 			return;
 		}
 
-		// Keep only the latest unmatched hitsplat for hitsplat-first order.
-		pendingHitsplatSample = new OutgoingHitsplatSample(hitTick, victimName);
+		startBatch(hitsplat.getTick());
+		if (batchedHitsplatCount == MAX_BATCHED_HITSPLATS)
+		{
+			metrics.recordUnmatchedHitsplat();
+			return;
+		}
+		batchedHitsplatIdentities[batchedHitsplatCount] = hitsplat.getVictimIdentity();
+		batchedHitsplatNames[batchedHitsplatCount] = hitsplat.getVictimName();
+		batchedHitsplatCount++;
 	}
 
-	public void reset()
+	private void processHitsplat(int hitTick, int victimIdentity, String victimName)
 	{
-		currentTarget = null;
-		currentPidStatus = PidStatus.UNKNOWN;
-		pendingAttackSample = null;
-		pendingHitsplatSample = null;
+		int match = matchPendingAttack(hitTick, victimIdentity, victimName);
+		if (match == CANDIDATE_RESOLVED)
+		{
+			return;
+		}
+
+		// Hitsplats no swing resolved wait briefly for a swing that is processed after them; an older swing
+		// whose delay did not fit must not hide this tick's hit from a swing posted later in the tick.
+		storePendingHitsplat(hitTick, victimIdentity, victimName, match == CANDIDATE_UNRESOLVED);
 	}
 
-	private void softReset()
+	/**
+	 * Switches between matching each event as it arrives and resolving each tick's events together in
+	 * {@link #onGameTick}. Events buffered for the current tick are resolved before the switch.
+	 */
+	public void setTickBatched(boolean tickBatched)
 	{
-		currentTarget = null;
-		pendingAttackSample = null;
-		pendingHitsplatSample = null;
+		if (this.tickBatched != tickBatched)
+		{
+			flushBatch();
+			this.tickBatched = tickBatched;
+		}
 	}
 
-	public PidStatus getCurrentPidStatus()
+	public boolean isTickBatched()
 	{
-		return currentPidStatus;
+		return tickBatched;
 	}
 
-	private boolean matchesPendingAttackSample(String victimName, int hitTick)
+	/**
+	 * Resolves whatever is buffered if it belongs to an earlier tick, e.g. after a missed game tick, then
+	 * makes {@code tick} the buffered tick.
+	 */
+	private void startBatch(int tick)
 	{
-		if (pendingAttackSample == null)
+		if (batchTick != tick)
 		{
-			return false;
+			flushBatch();
+			batchTick = tick;
 		}
+	}
 
-		int age = hitTick - pendingAttackSample.attackTick;
-		if (age < 0 || age > MAX_HIT_DELAY_TICKS)
+	/**
+	 * Resolves the buffered tick: the swing first, so a same-tick hitsplat always finds it, then the hitsplats.
+	 */
+	private void flushBatch()
+	{
+		if (batchTick == NO_TICK)
 		{
-			return false;
+			return;
 		}
 
-		return pendingAttackSample.victimName.equalsIgnoreCase(victimName);
+		if (batchedTargetName != null)
+		{
+			processAttack(batchTick, batchedDelays, batchedBucket, batchedTargetIdentity, batchedTargetName,
+				batchedDistance);
+		}
+		for (int i = 0; i < batchedHitsplatCount; i++)
+		{
+			processHitsplat(batchTick, batchedHitsplatIdentities[i], batchedHitsplatNames[i]);
+		}
+		clearBatch();
 	}
 
-	private boolean matchesPendingHitsplatSample(AttackSample attackSample)
+	private void clearBatch()
 	{
-		if (pendingHitsplatSample == null)
+		batchTick = NO_TICK;
+		batchedTargetName = null;
+		batchedBucket = null;
+		batchedDelays = null;
+		for (int i = 0; i < batchedHitsplatCount; i++)
 		{
-			return false;
+			batchedHitsplatNames[i] = null;
 		}
+		batchedHitsplatCount = 0;
+	}
 
-		if (!pendingHitsplatSample.victimName.equalsIgnoreCase(attackSample.victimName))
-		{
-			return false;
-		}
+	public void onItemContainerChanged(ItemContainerChanged event)
+	{
+		recoilRingTracker.onItemContainerChanged(event);
+	}
 
-		int rawTicksFromCastToHit = pendingHitsplatSample.hitTick - attackSample.attackTick;
-		return rawTicksFromCastToHit >= -EARLY_HITSPLAT_TOLERANCE_TICKS && rawTicksFromCastToHit <= MAX_HIT_DELAY_TICKS;
+	public void onGameStateChanged(GameStateChanged event)
+	{
+		recoilRingTracker.onGameStateChanged(event);
 	}
 
-	private void resolveSample(AttackSample sample, int hitTick)
+	public void reset()
 	{
-		int rawTicksFromCastToHit = hitTick - sample.attackTick;
-		int ticksFromCastToHit = normalizeTicksFromCastToHit(rawTicksFromCastToHit);
-		if (ticksFromCastToHit < 0)
+		int tick = client.getTickCount();
+		softReset(tick);
+		opponents.clear();
+		metrics.reset();
+		displayedIdentity = PlayerIdentity.NONE;
+		setStatus(tick, PidStatus.UNKNOWN);
+	}
+
+	private void softReset(int tick)
+	{
+		clearBatch();
+		Arrays.fill(deadlineTicks, NO_TICK);
+		Arrays.fill(deadlineCounts, 0);
+		ignoredHitsplatTick = NO_TICK;
+		setTarget(tick, PlayerIdentity.NONE, null);
+		for (PendingAttack attack : pendingAttacks)
 		{
-			return;
+			attack.clear();
 		}
-
-		PidStatus analyzedStatus = analyzeAttack(sample.bucket, sample.distance, ticksFromCastToHit);
-		if (analyzedStatus != PidStatus.UNKNOWN)
+		for (PendingHitsplat hitsplat : pendingHitsplats)
 		{
-			currentPidStatus = analyzedStatus;
+			hitsplat.clear();
 		}
 	}
 
-	private PidStatus analyzeAttack(AttackAnimationBuckets.Bucket bucket, int distance, int ticksFromCastToHit)
+	/**
+	 * Sets who hears about target, sample and status changes, or removes the listener when null.
+	 */
+	void setListener(Listener listener)
 	{
-		if (ticksFromCastToHit < 0 || distance < 0)
-		{
-			return PidStatus.UNKNOWN;
-		}
+		this.listener = listener == null ? NO_LISTENER : listener;
+	}
 
-		int expectedOnPid = expectedOnPidDelay(bucket, distance);
-		if (ticksFromCastToHit == expectedOnPid)
-		{
-			return PidStatus.ON_PID;
-		}
+	/**
+	 * Detection-quality counters since the last {@link #reset()}. Live and client-thread only; hand
+	 * {@link DetectionMetrics#copy()} to other threads.
+	 */
+	public DetectionMetrics getMetrics()
+	{
+		return metrics;
+	}
 
-		if (ticksFromCastToHit == expectedOnPid + 1)
-		{
-			return PidStatus.OFF_PID;
-		}
+	public PidStatus getCurrentPidStatus()
+	{
+		return currentPidStatus;
+	}
 
-		return PidStatus.UNKNOWN;
+	/**
+	 * Returns a stamp that changes whenever {@link #getCurrentPidStatus()} does.
+	 */
+	public int getStatusVersion()
+	{
+		return statusVersion;
 	}
 
-	private int expectedOnPidDelay(AttackAnimationBuckets.Bucket bucket, int distance)
+	/**
+	 * Name of the player the detector currently attributes swings to, or null.
+	 */
+	public String getCurrentTargetName()
 	{
-		switch (bucket)
-		{
-			case MELEE:
-				return 0;
-			case MAGIC:
-				return 1 + (int) Math.floor((1.0 + distance) / 3.0);
-			case RANGED_THROWN:
-				return 1 + (int) Math.floor(distance / 6.0);
-			case RANGED_BALLISTA:
-				if (distance == 3 || distance == 4)
-				{
-					return 1;
-				}
-				return 1 + (int) Math.floor((3.0 + distance) / 6.0);
-			case RANGED_STANDARD:
-			default:
-				return 1 + (int) Math.floor((3.0 + distance) / 6.0);
-		}
+		return currentTargetName;
+	}
+
+	/**
+	 * Tick of the latest swing/hitsplat pair against the displayed opponent that resolved to ON or OFF PID,
+	 * or {@link Integer#MIN_VALUE}.
+	 */
+	public int getLastResolutionTick()
+	{
+		OpponentTable.Opponent opponent = opponents.get(displayedIdentity);
+		return opponent == null ? NO_TICK : opponent.getLastResolutionTick();
+	}
+
+	/**
+	 * Confidence in {@link #getCurrentPidStatus()}, from 0 to 1; see {@link PidEstimator#getConfidence()}.
+	 */
+	public float getCurrentConfidence()
+	{
+		OpponentTable.Opponent opponent = opponents.get(displayedIdentity);
+		return opponent == null ? 0 : opponent.getConfidence();
+	}
+
+	public int getOnPidSamples()
+	{
+		OpponentTable.Opponent opponent = opponents.get(displayedIdentity);
+		return opponent == null ? 0 : opponent.getOnPidSamples();
 	}
 
-	private Player resolveTarget(Player localPlayer)
+	public int getOffPidSamples()
 	{
-		Actor interacting = localPlayer.getInteracting();
-		if (interacting instanceof Player)
+		OpponentTable.Opponent opponent = opponents.get(displayedIdentity);
+		return opponent == null ? 0 : opponent.getOffPidSamples();
+	}
+
+	/**
+	 * Switches the target; a new opponent brings back whatever status was last learned against them.
+	 */
+	private void setTarget(int tick, int identity, String name)
+	{
+		if (identity != currentTargetIdentity)
 		{
-			return (Player) interacting;
+			listener.onTargetChanged(tick, identity, name);
 		}
-		if (isValidTarget(currentTarget))
+		currentTargetIdentity = identity;
+		currentTargetName = name;
+		if (identity == PlayerIdentity.NONE || identity == displayedIdentity)
 		{
-			return currentTarget;
+			return;
 		}
-		return null;
+
+		displayedIdentity = identity;
+		OpponentTable.Opponent opponent = opponents.get(identity);
+		setStatus(tick, opponent == null ? PidStatus.UNKNOWN : opponent.getStatus());
 	}
 
-	private boolean isLocalOutgoingHitsplat(Player victim, Hitsplat hitsplat)
+	private void resolve(int tick, int victimIdentity, PidStatus sample, AttackAnimationBuckets.Bucket bucket)
 	{
-		if (hitsplat.isMine())
-		{
-			return true;
-		}
+		metrics.recordOutcome(sample == PidStatus.ON_PID ? DetectionMetrics.Outcome.RESOLVED_ON
+			: DetectionMetrics.Outcome.RESOLVED_OFF, bucket);
+		applySample(tick, victimIdentity, sample, bucket, false);
+	}
 
-		int type = hitsplat.getHitsplatType();
-		if (type == HitsplatID.DAMAGE_ME || type == HitsplatID.BLOCK_ME)
+	/**
+	 * Feeds a sample to the victim's estimate and refreshes the status if they are the displayed opponent.
+	 */
+	private void applySample(int tick, int victimIdentity, PidStatus sample, AttackAnimationBuckets.Bucket bucket,
+		boolean predicted)
+	{
+		listener.onSample(tick, victimIdentity, sample, bucket, predicted);
+		OpponentTable.Opponent opponent = opponents.engage(victimIdentity);
+		if (opponent.getOnPidSamples() + opponent.getOffPidSamples() == 0 && opponent.getFirstSwingTick() != NO_TICK)
 		{
-			return true;
+			metrics.recordTicksToFirstResolution(tick - opponent.getFirstSwingTick());
 		}
-
-		if (type != HitsplatID.DAMAGE_OTHER && type != HitsplatID.BLOCK_OTHER)
+		PidStatus estimate = opponent.resolve(sample, tick);
+		if (victimIdentity == displayedIdentity)
 		{
-			return false;
+			setStatus(tick, estimate);
 		}
+	}
 
-		Player localPlayer = client.getLocalPlayer();
-		if (localPlayer == null || victim == null)
+	private void setStatus(int tick, PidStatus status)
+	{
+		if (status != currentPidStatus)
 		{
-			return false;
+			currentPidStatus = status;
+			statusVersion++;
+			listener.onStatusChanged(tick, displayedIdentity, status, getCurrentConfidence());
 		}
+	}
 
-		Actor localInteracting = localPlayer.getInteracting();
-		Actor victimInteracting = victim.getInteracting();
-		return localInteracting == victim || victimInteracting == localPlayer;
+	/**
+	 * Matches an outgoing hitsplat against pending swings on the same victim, oldest first, and resolves the
+	 * first one whose cast-to-hit delay identifies a PID state. Returns {@link #CANDIDATE_UNRESOLVED} if
+	 * pending swings on the victim could account for the hitsplat but none of them resolved.
+	 */
+	private int matchPendingAttack(int hitTick, int victimIdentity, String victimName)
+	{
+		int match = NO_CANDIDATE;
+		for (int ticksFromCastToHit = MAX_HIT_DELAY_TICKS; ticksFromCastToHit >= 0; ticksFromCastToHit--)
+		{
+			int attackTick = hitTick - ticksFromCastToHit;
+			PendingAttack attack = pendingAttacks[attackTick & (MAX_SAMPLE_AGE_TICKS - 1)];
+			if (attack.tick != attackTick || !attack.isVictim(victimIdentity, victimName))
+			{
+				continue;
+			}
+
+			match = CANDIDATE_UNRESOLVED;
+			PidStatus analyzedStatus = analyzeAttack(attack.expectedOnPid, ticksFromCastToHit);
+			if (analyzedStatus != PidStatus.UNKNOWN)
+			{
+				if (attack.predictedOff)
+				{
+					// Already sampled at its deadline; the hitsplat only confirms it.
+					metrics.recordOutcome(DetectionMetrics.Outcome.RESOLVED_OFF, attack.bucket);
+				}
+				else
+				{
+					resolve(hitTick, victimIdentity, analyzedStatus, attack.bucket);
+				}
+				attack.clear();
+				return CANDIDATE_RESOLVED;
+			}
+			attack.hitsplatSeen = true;
+		}
+		return match;
 	}
 
-	private boolean shouldIgnoreRecoilHitsplat(Hitsplat hitsplat)
+	/**
+	 * Matches a new swing against hitsplats on the same victim that were processed before it, latest first.
+	 */
+	private boolean matchPendingHitsplat(int attackTick, int victimIdentity, String victimName, int expectedOnPid,
+		AttackAnimationBuckets.Bucket bucket)
 	{
-		int amount = hitsplat.getAmount();
-		if (amount < RECOIL_MIN_DAMAGE || amount > RECOIL_MAX_DAMAGE)
+		for (int hitTick = attackTick; hitTick >= attackTick - EARLY_HITSPLAT_TOLERANCE_TICKS; hitTick--)
 		{
-			return false;
+			int slot = hitsplatSlotBase(hitTick);
+			for (int i = 0; i < HITSPLATS_PER_TICK; i++)
+			{
+				PendingHitsplat hitsplat = pendingHitsplats[slot + i];
+				if (hitsplat.tick != hitTick || !hitsplat.isVictim(victimIdentity, victimName))
+				{
+					continue;
+				}
+
+				hitsplat.clear();
+				resolveSample(attackTick, victimIdentity, expectedOnPid, hitTick - attackTick, bucket);
+				return true;
+			}
 		}
-		return isRecoilOrSufferingEquipped();
+		return false;
+	}
+
+	private void storePendingHitsplat(int hitTick, int victimIdentity, String victimName, boolean explained)
+	{
+		int slot = hitsplatSlotBase(hitTick);
+		int target = slot + HITSPLATS_PER_TICK - 1;
+		for (int i = HITSPLATS_PER_TICK - 1; i >= 0; i--)
+		{
+			PendingHitsplat hitsplat = pendingHitsplats[slot + i];
+			if (hitsplat.tick != hitTick)
+			{
+				target = slot + i;
+			}
+			else if (hitsplat.isVictim(victimIdentity, victimName))
+			{
+				// Keep only the latest unmatched hitsplat per victim and tick.
+				target = slot + i;
+				break;
+			}
+		}
+		PendingHitsplat replaced = pendingHitsplats[target];
+		if (replaced.tick == hitTick && !replaced.explained)
+		{
+			metrics.recordUnmatchedHitsplat();
+		}
+		replaced.set(hitTick, victimIdentity, victimName, explained);
 	}
 
-	private boolean isRecoilOrSufferingEquipped()
+	private void resolveSample(int tick, int victimIdentity, int expectedOnPid, int rawTicksFromCastToHit,
+		AttackAnimationBuckets.Bucket bucket)
 	{
-		ItemContainer equipmentContainer = client.getItemContainer(InventoryID.EQUIPMENT);
-		if (equipmentContainer == null)
+		int ticksFromCastToHit = normalizeTicksFromCastToHit(rawTicksFromCastToHit);
+		PidStatus analyzedStatus = ticksFromCastToHit < 0 ? PidStatus.UNKNOWN : analyzeAttack(expectedOnPid, ticksFromCastToHit);
+		if (analyzedStatus == PidStatus.UNKNOWN)
 		{
-			return false;
+			metrics.recordOutcome(DetectionMetrics.Outcome.UNRESOLVED, bucket);
+			return;
 		}
+		resolve(tick, victimIdentity, analyzedStatus, bucket);
+	}
 
-		Item[] equipment = equipmentContainer.getItems();
-		int ringSlot = EquipmentInventorySlot.RING.getSlotIdx();
-		if (equipment == null || ringSlot < 0 || ringSlot >= equipment.length)
+	private static PidStatus analyzeAttack(int expectedOnPid, int ticksFromCastToHit)
+	{
+		if (ticksFromCastToHit == expectedOnPid)
 		{
-			return false;
+			return PidStatus.ON_PID;
 		}
-
-		Item ringItem = equipment[ringSlot];
-		if (ringItem == null)
+		if (ticksFromCastToHit == expectedOnPid + 1)
 		{
-			return false;
+			return PidStatus.OFF_PID;
 		}
-
-		return isRecoilOrSufferingRing(ringItem);
+		return PidStatus.UNKNOWN;
 	}
 
-	private boolean isRecoilOrSufferingRing(Item ringItem)
+	private boolean shouldIgnoreRecoilHitsplat(int amount)
 	{
-		ItemComposition itemDefinition = client.getItemDefinition(ringItem.getId());
-		if (itemDefinition == null || itemDefinition.getName() == null)
+		if (amount < RECOIL_MIN_DAMAGE || amount > RECOIL_MAX_DAMAGE)
 		{
 			return false;
 		}
+		return recoilRingTracker.isEquipped();
+	}
 
-		String normalizedName = itemDefinition.getName().toLowerCase(Locale.ROOT);
-		return normalizedName.equals(RING_OF_RECOIL_NAME) || normalizedName.startsWith(RING_OF_SUFFERING_PREFIX);
+	private static int hitsplatSlotBase(int hitTick)
+	{
+		return (hitTick & (HITSPLAT_WINDOW_TICKS - 1)) * HITSPLATS_PER_TICK;
 	}
 
 	private static int normalizeTicksFromCastToHit(int rawTicksFromCastToHit)
@@ -375,53 +733,87 @@ public class PidDetector
 		return -1;
 	}
 
-	private static int calculateDistance(Player attacker, Player target)
+	/**
+	 * Confirms an identity match in case two name hashes collide. Within a tick the pipeline hands out one
+	 * name instance per player, so this is usually a reference compare.
+	 */
+	private static boolean isSameName(String a, String b)
 	{
-		if (attacker == null || target == null || attacker.getWorldLocation() == null || target.getWorldLocation() == null)
-		{
-			return -1;
-		}
-
-		int dx = Math.abs(attacker.getWorldLocation().getX() - target.getWorldLocation().getX());
-		int dy = Math.abs(attacker.getWorldLocation().getY() - target.getWorldLocation().getY());
-		return Math.max(dx, dy);
+		return a == b || a.equalsIgnoreCase(b);
 	}
 
-	private static boolean isValidTarget(Player player)
+	/**
+	 * Reusable window slot for a local swing that has not been matched to a hitsplat yet.
+	 */
+	private static final class PendingAttack
 	{
-		return player != null && player.getName() != null && !player.isDead();
-	}
+		private int tick = NO_TICK;
+		private int victimIdentity = PlayerIdentity.NONE;
+		private String victimName;
+		private int distance;
+		private AttackAnimationBuckets.Bucket bucket;
+		private int expectedOnPid;
+		/** Set once a hitsplat on the victim arrived whose delay fit neither ON nor OFF PID. */
+		private boolean hitsplatSeen;
+		/** Set once its on-PID tick passed without a hitsplat and OFF PID was sampled for it. */
+		private boolean predictedOff;
+
+		private void set(int tick, int victimIdentity, String victimName, int distance, AttackAnimationBuckets.Bucket bucket,
+			int expectedOnPid)
+		{
+			this.tick = tick;
+			this.victimIdentity = victimIdentity;
+			this.victimName = victimName;
+			this.distance = distance;
+			this.bucket = bucket;
+			this.expectedOnPid = expectedOnPid;
+			this.hitsplatSeen = false;
+			this.predictedOff = false;
+		}
 
-	private static boolean isSamePlayer(Player a, Actor b)
-	{
-		return a != null && b instanceof Player && a == b;
+		private boolean isVictim(int identity, String name)
+		{
+			return victimIdentity == identity && isSameName(victimName, name);
+		}
+
+		private void clear()
+		{
+			tick = NO_TICK;
+			victimIdentity = PlayerIdentity.NONE;
+			victimName = null;
+			bucket = null;
+		}
 	}
 
-	private static final class AttackSample
+	/**
+	 * Reusable window slot for an outgoing hitsplat that arrived before its swing was processed.
+	 */
+	private static final class PendingHitsplat
 	{
-		private final int attackTick;
-		private final String victimName;
-		private final int distance;
-		private final AttackAnimationBuckets.Bucket bucket;
+		private int tick = NO_TICK;
+		private int victimIdentity = PlayerIdentity.NONE;
+		private String victimName;
+		/** Whether an older swing on the victim already accounted for it, so expiring is not a miss. */
+		private boolean explained;
 
-		private AttackSample(int attackTick, String victimName, int distance, AttackAnimationBuckets.Bucket bucket)
+		private void set(int tick, int victimIdentity, String victimName, boolean explained)
 		{
-			this.attackTick = attackTick;
+			this.tick = tick;
+			this.victimIdentity = victimIdentity;
 			this.victimName = victimName;
-			this.distance = distance;
-			this.bucket = bucket;
+			this.explained = explained;
 		}
-	}
 
-	private static final class OutgoingHitsplatSample
-	{
-		private final int hitTick;
-		private final String victimName;
+		private boolean isVictim(int identity, String name)
+		{
+			return victimIdentity == identity && isSameName(victimName, name);
+		}
 
-		private OutgoingHitsplatSample(int hitTick, String victimName)
+		private void clear()
 		{
-			this.hitTick = hitTick;
-			this.victimName = victimName;
+			tick = NO_TICK;
+			victimIdentity = PlayerIdentity.NONE;
+			victimName = null;
 		}
 	}
 }
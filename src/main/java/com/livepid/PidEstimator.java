@@ -0,0 +1,93 @@
+package com.livepid;
+
+/**
+ * Streaming ON/OFF estimate for one opponent. Each sample decays the existing evidence by
+ * {@link #RETENTION} before adding its own weight, so a single misattributed hitsplat is outweighed by the
+ * streak before it, while two contrary samples in a row are enough to follow a PID reshuffle. When the
+ * evidence for the current status no longer outweighs the evidence against it, the status is
+ * {@link PidStatus#UNKNOWN} until one side leads by enough to switch.
+ */
+final class PidEstimator
+{
+	/** Share of the previous evidence kept when a new sample arrives. */
+	static final float RETENTION = 0.6f;
+	/** Minimum confidence for the leading side to replace the current status. */
+	static final float SWITCH_CONFIDENCE = 0.2f;
+	/** Evidence that counts against any conclusion; keeps a lone sample from reading as certain. */
+	private static final float PRIOR_WEIGHT = 0.5f;
+
+	private float onEvidence;
+	private float offEvidence;
+	private PidStatus status = PidStatus.UNKNOWN;
+
+	void reset()
+	{
+		onEvidence = 0;
+		offEvidence = 0;
+		status = PidStatus.UNKNOWN;
+	}
+
+	/**
+	 * Adds one resolved sample and returns the updated status estimate.
+	 */
+	PidStatus addSample(PidStatus sample)
+	{
+		onEvidence *= RETENTION;
+		offEvidence *= RETENTION;
+		if (sample == PidStatus.ON_PID)
+		{
+			onEvidence += 1;
+		}
+		else if (sample == PidStatus.OFF_PID)
+		{
+			offEvidence += 1;
+		}
+
+		PidStatus leader = onEvidence > offEvidence ? PidStatus.ON_PID
+			: offEvidence > onEvidence ? PidStatus.OFF_PID
+			: status;
+		if (leader != status && margin(leader) >= SWITCH_CONFIDENCE)
+		{
+			status = leader;
+		}
+		else if (margin(status) <= 0)
+		{
+			// Contrary evidence has caught up without yet being strong enough to switch; claiming either side
+			// at 0% confidence would be a guess.
+			status = PidStatus.UNKNOWN;
+		}
+		return status;
+	}
+
+	PidStatus getStatus()
+	{
+		return status;
+	}
+
+	/**
+	 * How strongly the decayed evidence favours the current status, from 0 (no status) towards 1; a status
+	 * other than UNKNOWN always has a confidence above 0. A lone sample gives 0.67 and a long consistent streak approaches 0.83.
+	 */
+	float getConfidence()
+	{
+		return Math.max(0, margin(status));
+	}
+
+	private float margin(PidStatus side)
+	{
+		float difference;
+		if (side == PidStatus.ON_PID)
+		{
+			difference = onEvidence - offEvidence;
+		}
+		else if (side == PidStatus.OFF_PID)
+		{
+			difference = offEvidence - onEvidence;
+		}
+		else
+		{
+			return 0;
+		}
+		return difference / (onEvidence + offEvidence + PRIOR_WEIGHT);
+	}
+}
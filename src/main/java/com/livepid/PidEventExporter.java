@@ -0,0 +1,355 @@
+package com.livepid;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streams target changes, resolved samples and status changes out of the client, for overlays and
+ * coaching tools. The client thread only copies each event into a {@link PidEventQueue}; a background
+ * thread drains it in batches to a file or a localhost TCP connection. A slow or absent reader costs
+ * dropped events, counted in {@link #getDroppedEvents()} and in the stream itself, never a blocked tick.
+ *
+ * <p>{@link PidEventFormat#NDJSON} writes one JSON object per line:
+ * <pre>
+ * {"event":"target","tick":812,"opponent":1234567,"name":"Zezima"}
+ * {"event":"sample","tick":815,"opponent":1234567,"sample":"OFF_PID","bucket":"MELEE","predicted":true}
+ * {"event":"status","tick":815,"opponent":1234567,"status":"OFF_PID","confidence":62}
+ * {"event":"dropped","count":40}
+ * </pre>
+ * {@link PidEventFormat#BINARY} writes {@link #MAGIC} and {@link #VERSION}, then {@value #BINARY_RECORD_BYTES}-byte
+ * big-endian records {@code [u8 type][u8 status][u8 detail][u8 flags][i32 tick][i32 opponent]}, with the
+ * event types below, status as a {@link PidStatus} ordinal and detail as the bucket ordinal for samples or
+ * the confidence percent for status changes. Names are left out to keep records fixed-size; a dropped
+ * record carries the count in the opponent field. Each new connection or file starts with the header.
+ */
+@Slf4j
+class PidEventExporter implements PidDetector.Listener
+{
+	static final int MAGIC = 0x4C504556;
+	static final int VERSION = 1;
+	static final int BINARY_RECORD_BYTES = 12;
+
+	static final int EVENT_TARGET = 1;
+	static final int EVENT_SAMPLE = 2;
+	static final int EVENT_STATUS = 3;
+	static final int EVENT_DROPPED = 4;
+
+	/** Flag bit for a sample predicted from a missing on-PID hitsplat. */
+	static final int FLAG_PREDICTED = 1;
+
+	static final int QUEUE_CAPACITY = 4096;
+	static final long DRAIN_INTERVAL_MILLIS = 50;
+	private static final int MAX_BATCH = 1024;
+	private static final int CONNECT_TIMEOUT_MILLIS = 500;
+	private static final long REOPEN_INTERVAL_MILLIS = 5000;
+
+	private static final PidStatus[] STATUSES = PidStatus.values();
+	private static final AttackAnimationBuckets.Bucket[] BUCKETS = AttackAnimationBuckets.Bucket.values();
+
+	private final PidEventSink sink;
+	private final PidEventFormat format;
+	private final File file;
+	private final int port;
+	private final PidEventQueue queue = new PidEventQueue(QUEUE_CAPACITY);
+	private final ScheduledExecutorService writer;
+
+	// Writer thread only from here on.
+	private final ByteArrayOutputStream batch = new ByteArrayOutputStream(MAX_BATCH * 64);
+	private final DataOutputStream batchData = new DataOutputStream(batch);
+	private final StringBuilder line = new StringBuilder(128);
+	private OutputStream out;
+	private Socket socket;
+	private long nextOpenAttempt;
+	/** Whether the file was already started this session; reopening it after an error appends. */
+	private boolean fileStarted;
+	/** Events drained while nothing could take them, or drained into a batch that failed to write. */
+	private volatile long discarded;
+	private long reportedDrops;
+	/** Events in {@link #batch}, and the drop count its dropped record reports, until it is written. */
+	private int batchEvents;
+	private long batchDrops;
+
+	/**
+	 * @param file written for {@link PidEventSink#FILE}, replacing what an earlier session left
+	 * @param port localhost port connected to for {@link PidEventSink#TCP}
+	 */
+	PidEventExporter(PidEventSink sink, PidEventFormat format, File file, int port)
+	{
+		if (sink == PidEventSink.OFF)
+		{
+			throw new IllegalArgumentException("No sink to export PID events to");
+		}
+		this.sink = sink;
+		this.format = format;
+		this.file = file;
+		this.port = port;
+		this.writer = Executors.newSingleThreadScheduledExecutor(r ->
+		{
+			Thread thread = new Thread(r, "live-pid-event-writer");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	void start()
+	{
+		writer.scheduleWithFixedDelay(this::drain, 0, DRAIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Whether this exporter already writes where and how the given settings ask for.
+	 */
+	boolean matches(PidEventSink sink, PidEventFormat format, int port)
+	{
+		return this.sink == sink && this.format == format && (sink != PidEventSink.TCP || this.port == port);
+	}
+
+	/**
+	 * Events lost so far, because the queue was full or nothing was there to receive them.
+	 */
+	long getDroppedEvents()
+	{
+		return queue.getDropped() + discarded;
+	}
+
+	/**
+	 * Stops draining once what is queued now has been written, then closes the file or connection.
+	 */
+	void close()
+	{
+		writer.execute(() ->
+		{
+			drain();
+			closeOutput();
+		});
+		writer.shutdown();
+	}
+
+	boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+	{
+		return writer.awaitTermination(timeout, unit);
+	}
+
+	@Override
+	public void onTargetChanged(int tick, int identity, String name)
+	{
+		queue.offer(EVENT_TARGET, tick, identity, 0, 0, name);
+	}
+
+	@Override
+	public void onSample(int tick, int identity, PidStatus sample, AttackAnimationBuckets.Bucket bucket, boolean predicted)
+	{
+		queue.offer(EVENT_SAMPLE, tick, identity, sample.ordinal(), bucket.ordinal() | (predicted ? FLAG_PREDICTED << 8 : 0),
+			null);
+	}
+
+	@Override
+	public void onStatusChanged(int tick, int identity, PidStatus status, float confidence)
+	{
+		queue.offer(EVENT_STATUS, tick, identity, status.ordinal(), Math.round(confidence * 100), null);
+	}
+
+	/**
+	 * Writes everything queued, in batches. Runs on the writer thread, or directly in tests.
+	 */
+	void drain()
+	{
+		try
+		{
+			if (out == null && !open())
+			{
+				discarded += queue.drain((type, tick, identity, status, detail, name) -> { }, Integer.MAX_VALUE);
+				return;
+			}
+
+			long drops = getDroppedEvents();
+			if (drops != reportedDrops)
+			{
+				batchDrops = Math.min(drops - reportedDrops, Integer.MAX_VALUE);
+				append(EVENT_DROPPED, 0, (int) batchDrops, 0, 0, null);
+				reportedDrops += batchDrops;
+			}
+			while (queue.drain(this::append, MAX_BATCH) > 0 || batch.size() > 0)
+			{
+				// Flushed per batch, so a failed write is always this batch's.
+				batch.writeTo(out);
+				out.flush();
+				batch.reset();
+				batchEvents = 0;
+				batchDrops = 0;
+			}
+		}
+		catch (IOException ex)
+		{
+			log.warn("Unable to export PID events to {}", describeSink(), ex);
+			// The batch's events are off the queue, so they count as dropped, and its drop report is made again.
+			discarded += batchEvents;
+			reportedDrops -= batchDrops;
+			batch.reset();
+			batchEvents = 0;
+			batchDrops = 0;
+			closeOutput();
+		}
+	}
+
+	private boolean open() throws IOException
+	{
+		// Retries are spaced out, so a missing reader or a failing disk is not hit every drain.
+		long now = System.currentTimeMillis();
+		if (now < nextOpenAttempt)
+		{
+			return false;
+		}
+		nextOpenAttempt = now + REOPEN_INTERVAL_MILLIS;
+
+		if (sink == PidEventSink.FILE)
+		{
+			File parent = file.getParentFile();
+			if (parent != null && !parent.exists() && !parent.mkdirs())
+			{
+				throw new IOException("Unable to create event directory " + parent);
+			}
+			out = new BufferedOutputStream(new FileOutputStream(file, fileStarted));
+			if (fileStarted)
+			{
+				return true;
+			}
+			fileStarted = true;
+		}
+		else
+		{
+			Socket connecting = new Socket();
+			try
+			{
+				connecting.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECT_TIMEOUT_MILLIS);
+			}
+			catch (IOException ex)
+			{
+				connecting.close();
+				log.debug("No PID event reader on port {}: {}", port, ex.getMessage());
+				return false;
+			}
+			connecting.setTcpNoDelay(true);
+			socket = connecting;
+			out = new BufferedOutputStream(socket.getOutputStream());
+			log.debug("Connected to PID event reader on port {}", port);
+		}
+
+		if (format == PidEventFormat.BINARY)
+		{
+			batchData.writeInt(MAGIC);
+			batchData.writeByte(VERSION);
+		}
+		return true;
+	}
+
+	private void closeOutput()
+	{
+		try
+		{
+			if (out != null)
+			{
+				out.close();
+			}
+			if (socket != null)
+			{
+				socket.close();
+			}
+		}
+		catch (IOException ex)
+		{
+			log.debug("Unable to close PID event output", ex);
+		}
+		out = null;
+		socket = null;
+	}
+
+	private void append(int type, int tick, int identity, int status, int detail, String name) throws IOException
+	{
+		if (type != EVENT_DROPPED)
+		{
+			batchEvents++;
+		}
+		if (format == PidEventFormat.BINARY)
+		{
+			batchData.writeByte(type);
+			batchData.writeByte(status);
+			batchData.writeByte(detail & 0xFF);
+			batchData.writeByte(detail >>> 8);
+			batchData.writeInt(tick);
+			batchData.writeInt(identity);
+			return;
+		}
+
+		line.setLength(0);
+		switch (type)
+		{
+			case EVENT_TARGET:
+				line.append("{\"event\":\"target\",\"tick\":").append(tick).append(",\"opponent\":").append(identity)
+					.append(",\"name\":");
+				appendJsonString(name);
+				break;
+			case EVENT_SAMPLE:
+				line.append("{\"event\":\"sample\",\"tick\":").append(tick).append(",\"opponent\":").append(identity)
+					.append(",\"sample\":\"").append(STATUSES[status]).append("\",\"bucket\":\"")
+					.append(BUCKETS[detail & 0xFF]).append("\",\"predicted\":")
+					.append(((detail >>> 8) & FLAG_PREDICTED) != 0);
+				break;
+			case EVENT_STATUS:
+				line.append("{\"event\":\"status\",\"tick\":").append(tick).append(",\"opponent\":").append(identity)
+					.append(",\"status\":\"").append(STATUSES[status]).append("\",\"confidence\":").append(detail);
+				break;
+			default:
+				line.append("{\"event\":\"dropped\",\"count\":").append(identity);
+				break;
+		}
+		line.append("}\n");
+		batch.write(line.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void appendJsonString(String value)
+	{
+		if (value == null)
+		{
+			line.append("null");
+			return;
+		}
+
+		line.append('"');
+		for (int i = 0; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\')
+			{
+				line.append('\\').append(c);
+			}
+			else if (c < 0x20)
+			{
+				line.append(String.format("\\u%04x", (int) c));
+			}
+			else
+			{
+				line.append(c);
+			}
+		}
+		line.append('"');
+	}
+
+	private String describeSink()
+	{
+		return sink == PidEventSink.FILE ? file.toString() : "localhost:" + port;
+	}
+}
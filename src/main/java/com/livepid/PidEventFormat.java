@@ -0,0 +1,20 @@
+package com.livepid;
+
+public enum PidEventFormat
+{
+	NDJSON("JSON lines"),
+	BINARY("Binary");
+
+	private final String label;
+
+	PidEventFormat(String label)
+	{
+		this.label = label;
+	}
+
+	@Override
+	public String toString()
+	{
+		return label;
+	}
+}
@@ -0,0 +1,118 @@
+package com.livepid;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded single-producer, single-consumer queue of fixed-size PID event records, backed by preallocated
+ * parallel arrays. The client thread offers and one writer thread drains; neither ever waits for the other.
+ * When the queue is full a new record is dropped and counted instead.
+ */
+final class PidEventQueue
+{
+	interface RecordConsumer
+	{
+		void accept(int type, int tick, int identity, int status, int detail, String name) throws IOException;
+	}
+
+	private final int mask;
+	private final int[] types;
+	private final int[] ticks;
+	private final int[] identities;
+	private final int[] statuses;
+	private final int[] details;
+	private final String[] names;
+
+	/** Next record to drain; written by the consumer only. */
+	private final AtomicLong head = new AtomicLong();
+	/** Next record to offer; written by the producer only. */
+	private final AtomicLong tail = new AtomicLong();
+	/** The producer's last look at {@link #head}, so it only reads the shared counter when it seems full. */
+	private long producerHead;
+	private volatile long dropped;
+
+	/**
+	 * @param capacity a power of two
+	 */
+	PidEventQueue(int capacity)
+	{
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1)
+		{
+			throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+		}
+		mask = capacity - 1;
+		types = new int[capacity];
+		ticks = new int[capacity];
+		identities = new int[capacity];
+		statuses = new int[capacity];
+		details = new int[capacity];
+		names = new String[capacity];
+	}
+
+	/**
+	 * Appends a record, or drops it if the queue is full. Producer thread only.
+	 */
+	boolean offer(int type, int tick, int identity, int status, int detail, String name)
+	{
+		long position = tail.get();
+		if (position - producerHead > mask)
+		{
+			producerHead = head.get();
+			if (position - producerHead > mask)
+			{
+				// Only the producer writes this counter, so the non-atomic increment is safe.
+				dropped = dropped + 1;
+				return false;
+			}
+		}
+
+		int slot = (int) position & mask;
+		types[slot] = type;
+		ticks[slot] = tick;
+		identities[slot] = identity;
+		statuses[slot] = status;
+		details[slot] = detail;
+		names[slot] = name;
+		// Ordered store: the consumer sees the slot's fields before the new tail.
+		tail.lazySet(position + 1);
+		return true;
+	}
+
+	/**
+	 * Hands up to {@code max} records to {@code consumer} in offer order and returns how many. Consumer
+	 * thread only. Records are released as a batch, after the last one is accepted.
+	 */
+	int drain(RecordConsumer consumer, int max) throws IOException
+	{
+		long position = head.get();
+		int count = (int) Math.min(tail.get() - position, max);
+		try
+		{
+			for (int i = 0; i < count; i++)
+			{
+				int slot = (int) (position + i) & mask;
+				consumer.accept(types[slot], ticks[slot], identities[slot], statuses[slot], details[slot], names[slot]);
+				names[slot] = null;
+			}
+		}
+		finally
+		{
+			// Records are not retried: a failing consumer loses the batch rather than stalling the queue.
+			head.lazySet(position + count);
+		}
+		return count;
+	}
+
+	/**
+	 * Records dropped because the queue was full.
+	 */
+	long getDropped()
+	{
+		return dropped;
+	}
+
+	int size()
+	{
+		return (int) (tail.get() - head.get());
+	}
+}
@@ -0,0 +1,21 @@
+package com.livepid;
+
+public enum PidEventSink
+{
+	OFF("Off"),
+	FILE("File"),
+	TCP("Localhost TCP");
+
+	private final String label;
+
+	PidEventSink(String label)
+	{
+		this.label = label;
+	}
+
+	@Override
+	public String toString()
+	{
+		return label;
+	}
+}
@@ -0,0 +1,91 @@
+package com.livepid;
+
+/**
+ * Immutable view of the detector and indicator state, published by the plugin once per game tick through a
+ * single volatile reference. Overlays read only this, so a frame never mixes state from two ticks.
+ */
+final class PidSnapshot
+{
+	static final PidSnapshot EMPTY = new PidSnapshot(PidStatus.UNKNOWN, 0, 0, false, null, Integer.MIN_VALUE, 0, 0, 0);
+
+	private final PidStatus status;
+	private final int statusVersion;
+	private final int confidencePercent;
+	private final boolean visible;
+	private final String targetName;
+	private final int lastResolutionTick;
+	private final int onPidSamples;
+	private final int offPidSamples;
+	private final int tick;
+
+	PidSnapshot(PidStatus status, int statusVersion, int confidencePercent, boolean visible, String targetName,
+		int lastResolutionTick, int onPidSamples, int offPidSamples, int tick)
+	{
+		this.status = status;
+		this.statusVersion = statusVersion;
+		this.confidencePercent = confidencePercent;
+		this.visible = visible;
+		this.targetName = targetName;
+		this.lastResolutionTick = lastResolutionTick;
+		this.onPidSamples = onPidSamples;
+		this.offPidSamples = offPidSamples;
+		this.tick = tick;
+	}
+
+	PidStatus getStatus()
+	{
+		return status;
+	}
+
+	/**
+	 * Stamp that changes whenever the status does; equal stamps from the same detector mean the same status.
+	 */
+	int getStatusVersion()
+	{
+		return statusVersion;
+	}
+
+	/**
+	 * Confidence in the status, 0 to 100.
+	 */
+	int getConfidencePercent()
+	{
+		return confidencePercent;
+	}
+
+	/**
+	 * Whether the indicator should be drawn, after out-of-combat hiding.
+	 */
+	boolean isVisible()
+	{
+		return visible;
+	}
+
+	String getTargetName()
+	{
+		return targetName;
+	}
+
+	int getLastResolutionTick()
+	{
+		return lastResolutionTick;
+	}
+
+	int getOnPidSamples()
+	{
+		return onPidSamples;
+	}
+
+	int getOffPidSamples()
+	{
+		return offPidSamples;
+	}
+
+	/**
+	 * Game tick the snapshot was taken on.
+	 */
+	int getTick()
+	{
+		return tick;
+	}
+}
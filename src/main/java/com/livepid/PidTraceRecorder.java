@@ -0,0 +1,576 @@
+package com.livepid;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Actor;
+import net.runelite.api.Client;
+import net.runelite.api.EquipmentInventorySlot;
+import net.runelite.api.GameState;
+import net.runelite.api.Hitsplat;
+import net.runelite.api.InventoryID;
+import net.runelite.api.Item;
+import net.runelite.api.ItemComposition;
+import net.runelite.api.ItemContainer;
+import net.runelite.api.Player;
+import net.runelite.api.WorldView;
+import net.runelite.api.coords.WorldPoint;
+import net.runelite.api.events.AnimationChanged;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.HitsplatApplied;
+import net.runelite.api.events.ItemContainerChanged;
+
+/**
+ * Records the client state {@link PidDetector} consumes into a compact binary trace, so a fight can be
+ * replayed offline without a client.
+ *
+ * <p>A trace is a 4-byte magic and a 1-byte version, followed by records laid out as
+ * {@code [u8 type][u8 payload length][payload]}. A player's handle is their scene index; the player record
+ * for a handle is written again whenever the index changes hands, and a player's state (position,
+ * interacting target, animation, dead flag) is only written when it changed since it was last recorded.
+ * A world hop or logout starts a new segment, after which everything is recorded afresh.
+ *
+ * <p>Recording runs on the client thread next to the detector, so it keeps to the same rules: each record
+ * is built in one preallocated buffer and copied into the pending chunk, and full chunks go to a background
+ * thread that appends them to the file and hands them back for reuse. Hitsplats read a player's state at
+ * most once per tick, and the ring is recorded from equipment changes rather than read per hitsplat.
+ */
+@Slf4j
+class PidTraceRecorder
+{
+	static final int MAGIC = 0x4C505452;
+	static final int VERSION = 1;
+
+	/**
+	 * {@link PlayerIdentity} i32, name UTF. The identity's scene index is the player's handle, and a later
+	 * record for the same handle replaces the player.
+	 */
+	static final int RECORD_PLAYER = 1;
+	/** item id i32, name UTF. */
+	static final int RECORD_ITEM_NAME = 2;
+	/** handle u16, x u16, y u16, plane u8, interacting handle u16, animation u16, dead u8. */
+	static final int RECORD_PLAYER_STATE = 3;
+	/** handle u16. */
+	static final int RECORD_LOCAL_PLAYER = 4;
+	/** ring item id i32, -1 when the slot is empty. */
+	static final int RECORD_RING = 5;
+	/** tick i32. */
+	static final int RECORD_GAME_TICK = 6;
+	/** tick i32, actor handle u16. */
+	static final int RECORD_ANIMATION = 7;
+	/** tick i32, victim handle u16, hitsplat type u16, amount u16, mine u8, disappears-on cycle i32. */
+	static final int RECORD_HITSPLAT = 8;
+	/** game state name UTF; players, the local player and the ring are recorded afresh after it. */
+	static final int RECORD_SEGMENT = 9;
+
+	static final int NO_HANDLE = 0xFFFF;
+	static final int NON_PLAYER_HANDLE = 0xFFFE;
+	static final int NO_ANIMATION = 0xFFFF;
+
+	private static final int SCENE_INDICES = 1 << PlayerIdentity.INDEX_BITS;
+	/** Marks a handle with no player record in the current segment. */
+	private static final int NOT_RECORDED = Integer.MIN_VALUE;
+	private static final int MAX_PAYLOAD_BYTES = 0xFF;
+	private static final int RECORD_HEADER_BYTES = 2;
+	private static final int MAX_RECORD_BYTES = RECORD_HEADER_BYTES + MAX_PAYLOAD_BYTES;
+	private static final int FILE_HEADER_BYTES = 5;
+	private static final int FLUSH_THRESHOLD_BYTES = 64 * 1024;
+	private static final int CHUNK_BYTES = FILE_HEADER_BYTES + FLUSH_THRESHOLD_BYTES + MAX_RECORD_BYTES;
+	/** Written chunks kept for reuse; a flush finding none allocates a new chunk rather than waiting. */
+	private static final int SPARE_CHUNKS = 2;
+	private static final int NO_TICK = Integer.MIN_VALUE;
+	private static final int STATE_FIELDS = 6;
+
+	private final Client client;
+	private final File file;
+	private final ExecutorService writer;
+
+	/** Per handle, the {@link PlayerIdentity} its player record was written for. */
+	private final int[] recordedIdentities = new int[SCENE_INDICES];
+	private final int[] lastStates = new int[SCENE_INDICES * STATE_FIELDS];
+	/** Per handle, the tick a hitsplat last recorded the player's state in. */
+	private final int[] hitsplatStateTicks = new int[SCENE_INDICES];
+	private final Set<Integer> namedItems = new HashSet<>();
+	/** The record being built: type, payload length, payload. */
+	private final byte[] record = new byte[MAX_RECORD_BYTES];
+	private final BlockingQueue<byte[]> spareChunks = new ArrayBlockingQueue<>(SPARE_CHUNKS);
+
+	/** Records not yet handed to the writer; a record is only added while the chunk is under the threshold. */
+	private byte[] chunk = new byte[CHUNK_BYTES];
+	private int recordLength;
+	private boolean recordOverflowed;
+	private int chunkLength;
+	/** Tick a hitsplat last recorded the local player and their target in. */
+	private int hitsplatStatesTick;
+	/** Handle and identity of the local player's latest player target, or {@link #NO_HANDLE}. */
+	private int lastTargetHandle = NO_HANDLE;
+	private int lastTargetIdentity = PlayerIdentity.NONE;
+	private int lastLocalHandle;
+	private int lastRingItemId;
+	/** Whether the ring has to be read from the client, as no equipment change was seen this segment. */
+	private boolean ringUnknown;
+	private boolean headerWritten;
+
+	PidTraceRecorder(Client client, File file)
+	{
+		this.client = client;
+		this.file = file;
+		this.writer = Executors.newSingleThreadExecutor(r ->
+		{
+			Thread thread = new Thread(r, "live-pid-trace-writer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		startSegment();
+	}
+
+	File getFile()
+	{
+		return file;
+	}
+
+	void recordGameTick()
+	{
+		Player localPlayer = client.getLocalPlayer();
+		recordLocalPlayer(localPlayer);
+		recordStates(localPlayer, null);
+		if (ringUnknown)
+		{
+			recordRing(client.getItemContainer(InventoryID.EQUIPMENT));
+		}
+
+		begin(RECORD_GAME_TICK).writeTick(client.getTickCount()).emit();
+	}
+
+	void recordAnimationChanged(AnimationChanged event)
+	{
+		if (!(event.getActor() instanceof Player))
+		{
+			return;
+		}
+
+		Player localPlayer = client.getLocalPlayer();
+		if (localPlayer == null || event.getActor() != localPlayer)
+		{
+			return;
+		}
+
+		recordLocalPlayer(localPlayer);
+		recordStates(localPlayer, null);
+
+		begin(RECORD_ANIMATION).writeTick(client.getTickCount()).writeHandle(lastLocalHandle).emit();
+	}
+
+	void recordHitsplatApplied(HitsplatApplied event)
+	{
+		Hitsplat hitsplat = event.getHitsplat();
+		if (!(event.getActor() instanceof Player) || hitsplat == null)
+		{
+			return;
+		}
+
+		// Hitsplats come in bursts within a tick, and players only move between ticks, so each player's
+		// state is read once per tick here; the local player's swings still record theirs on every change.
+		int tick = client.getTickCount();
+		Player victim = (Player) event.getActor();
+		int victimHandle = victim.getId() & (SCENE_INDICES - 1);
+		if (hitsplatStateTicks[victimHandle] != tick)
+		{
+			hitsplatStateTicks[victimHandle] = tick;
+			recordState(victim);
+		}
+		if (hitsplatStatesTick != tick)
+		{
+			hitsplatStatesTick = tick;
+			Player localPlayer = client.getLocalPlayer();
+			recordLocalPlayer(localPlayer);
+			recordStates(localPlayer, null);
+		}
+		if (ringUnknown)
+		{
+			recordRing(client.getItemContainer(InventoryID.EQUIPMENT));
+		}
+
+		begin(RECORD_HITSPLAT)
+			.writeTick(tick)
+			.writeHandle(victimHandle)
+			.writeShort(hitsplat.getHitsplatType())
+			.writeShort(hitsplat.getAmount())
+			.writeByte(hitsplat.isMine() ? 1 : 0)
+			.writeInt(hitsplat.getDisappearsOnGameCycle())
+			.emit();
+	}
+
+	void recordItemContainerChanged(ItemContainerChanged event)
+	{
+		if (event.getContainerId() == InventoryID.EQUIPMENT.getId())
+		{
+			recordRing(event.getItemContainer());
+		}
+	}
+
+	/**
+	 * Starts a new segment on a world hop or logout, so no player from before it is matched or kept.
+	 */
+	void recordGameStateChanged(GameStateChanged event)
+	{
+		GameState gameState = event.getGameState();
+		if (gameState != GameState.HOPPING && gameState != GameState.LOGIN_SCREEN)
+		{
+			return;
+		}
+
+		startSegment();
+		begin(RECORD_SEGMENT).writeUtf(gameState.name()).emit();
+	}
+
+	/**
+	 * Flushes buffered records and stops the writer thread once they are on disk.
+	 */
+	void close()
+	{
+		flush();
+		writer.shutdown();
+	}
+
+	boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+	{
+		return writer.awaitTermination(timeout, unit);
+	}
+
+	private void startSegment()
+	{
+		Arrays.fill(recordedIdentities, NOT_RECORDED);
+		lastTargetHandle = NO_HANDLE;
+		lastTargetIdentity = PlayerIdentity.NONE;
+		lastLocalHandle = -1;
+		lastRingItemId = Integer.MIN_VALUE;
+		ringUnknown = true;
+		hitsplatStatesTick = NO_TICK;
+		Arrays.fill(hitsplatStateTicks, NO_TICK);
+	}
+
+	private void recordLocalPlayer(Player localPlayer)
+	{
+		int handle = localPlayer == null ? NO_HANDLE : handleOf(localPlayer);
+		if (handle != lastLocalHandle)
+		{
+			lastLocalHandle = handle;
+			begin(RECORD_LOCAL_PLAYER).writeHandle(handle).emit();
+		}
+	}
+
+	private void recordStates(Player localPlayer, Player victim)
+	{
+		if (victim != null)
+		{
+			recordState(victim);
+		}
+		if (localPlayer == null)
+		{
+			return;
+		}
+
+		recordState(localPlayer);
+		Actor interacting = localPlayer.getInteracting();
+		if (interacting instanceof Player)
+		{
+			Player target = (Player) interacting;
+			lastTargetHandle = handleOf(target);
+			lastTargetIdentity = recordedIdentities[lastTargetHandle];
+			recordState(target);
+			return;
+		}
+
+		// The detector falls back to the last target after the interaction drops, so keep recording them
+		// while their index is still theirs; only the handle is held, not the player.
+		Player lastTarget = findLastTarget();
+		if (lastTarget != null)
+		{
+			recordState(lastTarget);
+		}
+	}
+
+	private Player findLastTarget()
+	{
+		if (lastTargetHandle == NO_HANDLE)
+		{
+			return null;
+		}
+
+		WorldView worldView = client.getTopLevelWorldView();
+		Player player = worldView == null ? null : worldView.players().byIndex(lastTargetHandle);
+		if (player == null || identityOf(player) != lastTargetIdentity)
+		{
+			lastTargetHandle = NO_HANDLE;
+			return null;
+		}
+		return player;
+	}
+
+	private void recordState(Player player)
+	{
+		int handle = handleOf(player);
+		WorldPoint location = player.getWorldLocation();
+		int x = location == null ? 0 : location.getX();
+		int y = location == null ? 0 : location.getY();
+		int plane = location == null ? 0 : location.getPlane();
+		int interacting = interactingHandle(player.getInteracting());
+		int animation = player.getAnimation() < 0 ? NO_ANIMATION : player.getAnimation();
+		int dead = player.isDead() ? 1 : 0;
+
+		int offset = handle * STATE_FIELDS;
+		if (lastStates[offset] == x && lastStates[offset + 1] == y && lastStates[offset + 2] == plane
+			&& lastStates[offset + 3] == interacting && lastStates[offset + 4] == animation && lastStates[offset + 5] == dead)
+		{
+			return;
+		}
+		lastStates[offset] = x;
+		lastStates[offset + 1] = y;
+		lastStates[offset + 2] = plane;
+		lastStates[offset + 3] = interacting;
+		lastStates[offset + 4] = animation;
+		lastStates[offset + 5] = dead;
+
+		begin(RECORD_PLAYER_STATE)
+			.writeHandle(handle)
+			.writeShort(x)
+			.writeShort(y)
+			.writeByte(plane)
+			.writeHandle(interacting)
+			.writeShort(animation)
+			.writeByte(dead)
+			.emit();
+	}
+
+	private void recordRing(ItemContainer equipment)
+	{
+		ringUnknown = false;
+		int ringItemId = -1;
+		if (equipment != null)
+		{
+			Item ring = equipment.getItem(EquipmentInventorySlot.RING.getSlotIdx());
+			ringItemId = ring == null ? -1 : ring.getId();
+		}
+
+		if (ringItemId == lastRingItemId)
+		{
+			return;
+		}
+		lastRingItemId = ringItemId;
+
+		if (ringItemId >= 0 && namedItems.add(ringItemId))
+		{
+			ItemComposition definition = client.getItemDefinition(ringItemId);
+			if (definition != null && definition.getName() != null)
+			{
+				begin(RECORD_ITEM_NAME).writeInt(ringItemId).writeUtf(definition.getName()).emit();
+			}
+		}
+		begin(RECORD_RING).writeInt(ringItemId).emit();
+	}
+
+	private int interactingHandle(Actor interacting)
+	{
+		if (interacting == null)
+		{
+			return NO_HANDLE;
+		}
+		if (!(interacting instanceof Player))
+		{
+			return NON_PLAYER_HANDLE;
+		}
+		return handleOf((Player) interacting);
+	}
+
+	/**
+	 * Returns the player's handle, writing their player record first if the handle was last recorded for
+	 * someone else, or not yet in this segment.
+	 */
+	private int handleOf(Player player)
+	{
+		int handle = player.getId() & (SCENE_INDICES - 1);
+		String name = player.getName();
+		int identity = name == null ? PlayerIdentity.NONE : PlayerIdentity.of(handle, name);
+		if (recordedIdentities[handle] == identity)
+		{
+			return handle;
+		}
+
+		recordedIdentities[handle] = identity;
+		// Force the first state record for this player.
+		lastStates[handle * STATE_FIELDS] = Integer.MIN_VALUE;
+		String recordedName = name == null ? "" : name;
+		begin(RECORD_PLAYER).writeInt(PlayerIdentity.of(handle, recordedName)).writeUtf(recordedName).emit();
+		return handle;
+	}
+
+	private static int identityOf(Player player)
+	{
+		String name = player.getName();
+		return name == null ? PlayerIdentity.NONE : PlayerIdentity.of(player.getId(), name);
+	}
+
+	private PidTraceRecorder begin(int type)
+	{
+		record[0] = (byte) type;
+		recordLength = RECORD_HEADER_BYTES;
+		recordOverflowed = false;
+		return this;
+	}
+
+	private PidTraceRecorder writeTick(int tick)
+	{
+		return writeInt(tick);
+	}
+
+	private PidTraceRecorder writeHandle(int handle)
+	{
+		return writeShort(handle);
+	}
+
+	private PidTraceRecorder writeInt(int value)
+	{
+		return writeShort(value >>> 16).writeShort(value);
+	}
+
+	private PidTraceRecorder writeShort(int value)
+	{
+		return writeByte(value >>> 8).writeByte(value);
+	}
+
+	private PidTraceRecorder writeByte(int value)
+	{
+		if (recordLength == MAX_RECORD_BYTES)
+		{
+			recordOverflowed = true;
+			return this;
+		}
+		record[recordLength++] = (byte) value;
+		return this;
+	}
+
+	/**
+	 * Writes a string the way {@link java.io.DataOutputStream#writeUTF} does: a u16 byte count, then the
+	 * characters in modified UTF-8.
+	 */
+	private PidTraceRecorder writeUtf(String value)
+	{
+		int length = 0;
+		for (int i = 0; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			length += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+		}
+		if (recordLength + 2 + length > MAX_RECORD_BYTES)
+		{
+			recordOverflowed = true;
+			return this;
+		}
+
+		writeShort(length);
+		for (int i = 0; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			if (c >= 0x0001 && c <= 0x007F)
+			{
+				writeByte(c);
+			}
+			else if (c <= 0x07FF)
+			{
+				writeByte(0xC0 | (c >> 6));
+				writeByte(0x80 | (c & 0x3F));
+			}
+			else
+			{
+				writeByte(0xE0 | (c >> 12));
+				writeByte(0x80 | ((c >> 6) & 0x3F));
+				writeByte(0x80 | (c & 0x3F));
+			}
+		}
+		return this;
+	}
+
+	private void emit()
+	{
+		if (recordOverflowed)
+		{
+			log.debug("Dropping oversized trace record of type {}", record[0]);
+			return;
+		}
+
+		if (!headerWritten)
+		{
+			writeHeader();
+		}
+		record[1] = (byte) (recordLength - RECORD_HEADER_BYTES);
+		System.arraycopy(record, 0, chunk, chunkLength, recordLength);
+		chunkLength += recordLength;
+
+		if (chunkLength >= FLUSH_THRESHOLD_BYTES)
+		{
+			flush();
+		}
+	}
+
+	private void writeHeader()
+	{
+		headerWritten = true;
+		chunk[chunkLength++] = (byte) (MAGIC >>> 24);
+		chunk[chunkLength++] = (byte) (MAGIC >>> 16);
+		chunk[chunkLength++] = (byte) (MAGIC >>> 8);
+		chunk[chunkLength++] = (byte) MAGIC;
+		chunk[chunkLength++] = (byte) VERSION;
+	}
+
+	private void flush()
+	{
+		if (chunkLength == 0)
+		{
+			return;
+		}
+
+		byte[] bytes = chunk;
+		int length = chunkLength;
+		byte[] spare = spareChunks.poll();
+		chunk = spare != null ? spare : new byte[CHUNK_BYTES];
+		chunkLength = 0;
+		writer.execute(() -> append(bytes, length));
+	}
+
+	private void append(byte[] bytes, int length)
+	{
+		try
+		{
+			File parent = file.getParentFile();
+			if (parent != null && !parent.exists() && !parent.mkdirs())
+			{
+				log.warn("Unable to create trace directory {}", parent);
+				return;
+			}
+
+			try (OutputStream out = new FileOutputStream(file, true))
+			{
+				out.write(bytes, 0, length);
+			}
+			catch (IOException ex)
+			{
+				log.warn("Unable to write PID trace {}", file, ex);
+			}
+		}
+		finally
+		{
+			spareChunks.offer(bytes);
+		}
+	}
+}
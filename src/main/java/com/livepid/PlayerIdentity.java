@@ -0,0 +1,35 @@
+package com.livepid;
+
+/**
+ * Compact integer identity for a player: the scene index in the high bits and a hash of the name in the
+ * low bits. Two players in the scene never share an index at the same time, and the name hash tells apart
+ * players that reuse an index after someone leaves. The hash ignores case, like the name check that confirms a match.
+ */
+final class PlayerIdentity
+{
+	static final int NONE = -1;
+
+	static final int INDEX_BITS = 11;
+	private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+	private static final int NAME_HASH_BITS = 20;
+	private static final int NAME_HASH_MASK = (1 << NAME_HASH_BITS) - 1;
+
+	private PlayerIdentity()
+	{
+	}
+
+	static int of(int index, String name)
+	{
+		int hash = 0;
+		for (int i = 0; i < name.length(); i++)
+		{
+			hash = 31 * hash + Character.toLowerCase(name.charAt(i));
+		}
+		return ((index & INDEX_MASK) << NAME_HASH_BITS) | (hash & NAME_HASH_MASK);
+	}
+
+	static int index(int identity)
+	{
+		return identity >>> NAME_HASH_BITS;
+	}
+}
@@ -0,0 +1,96 @@
+package com.livepid;
+
+import java.util.Arrays;
+import net.runelite.api.Client;
+import net.runelite.api.EquipmentInventorySlot;
+import net.runelite.api.GameState;
+import net.runelite.api.InventoryID;
+import net.runelite.api.Item;
+import net.runelite.api.ItemContainer;
+import net.runelite.api.ItemID;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.ItemContainerChanged;
+
+/**
+ * Tracks whether a damage-reflecting ring (recoil or suffering) is equipped. The flag is updated from
+ * equipment container and game state events, so hitsplat handling only reads a field.
+ */
+class RecoilRingTracker
+{
+	/** Sorted ids of the rings that reflect damage, resolved once rather than looked up per equipment change. */
+	private static final int[] RECOIL_RING_IDS = sorted(
+		ItemID.RING_OF_RECOIL,
+		ItemID.RING_OF_SUFFERING,
+		ItemID.RING_OF_SUFFERING_I,
+		ItemID.RING_OF_SUFFERING_R,
+		ItemID.RING_OF_SUFFERING_RI,
+		ItemID.RING_OF_SUFFERING_I_25246,
+		ItemID.RING_OF_SUFFERING_I_26761
+	);
+
+	private final Client client;
+
+	private boolean equipped;
+	private boolean stale = true;
+
+	RecoilRingTracker(Client client)
+	{
+		this.client = client;
+	}
+
+	/**
+	 * Returns whether a recoil-style ring is equipped. Only reads the equipment container directly the first
+	 * time after construction or login; afterwards the flag follows {@link ItemContainerChanged}.
+	 */
+	boolean isEquipped()
+	{
+		if (stale)
+		{
+			stale = false;
+			update(client.getItemContainer(InventoryID.EQUIPMENT));
+		}
+		return equipped;
+	}
+
+	void onItemContainerChanged(ItemContainerChanged event)
+	{
+		if (event.getContainerId() != InventoryID.EQUIPMENT.getId())
+		{
+			return;
+		}
+		stale = false;
+		update(event.getItemContainer());
+	}
+
+	void onGameStateChanged(GameStateChanged event)
+	{
+		GameState gameState = event.getGameState();
+		if (gameState == GameState.LOGGED_IN)
+		{
+			// Equipment can differ after a login or world hop; re-read it on the next lookup.
+			stale = true;
+		}
+		else if (gameState == GameState.LOGIN_SCREEN || gameState == GameState.HOPPING)
+		{
+			equipped = false;
+			stale = true;
+		}
+	}
+
+	private void update(ItemContainer equipment)
+	{
+		Item ring = equipment == null ? null : equipment.getItem(EquipmentInventorySlot.RING.getSlotIdx());
+		equipped = ring != null && isRecoilRing(ring.getId());
+	}
+
+	private static boolean isRecoilRing(int itemId)
+	{
+		return Arrays.binarySearch(RECOIL_RING_IDS, itemId) >= 0;
+	}
+
+	private static int[] sorted(int... itemIds)
+	{
+		Arrays.sort(itemIds);
+		return itemIds;
+	}
+}
@@ -0,0 +1,337 @@
+package com.livepid;
+
+import net.runelite.api.Actor;
+import net.runelite.api.Client;
+import net.runelite.api.Player;
+import net.runelite.api.WorldView;
+import net.runelite.api.coords.WorldPoint;
+
+/**
+ * The local player, their target and the distance between them, read from the client once per tick.
+ * Captured by the first read after {@link #invalidate()} rather than at the game tick itself, because the
+ * tick's events are posted before its {@code GameTick} and a capture at the previous tick would see the
+ * previous positions. Every decision made within a tick then sees the same positions. Any other player's
+ * name, {@link PlayerIdentity} and whether they target the local player are read at most once per tick,
+ * cached by scene index, so no handler walks the scene's players.
+ *
+ * <p>Client thread only.
+ */
+final class WorldState
+{
+	private static final int SCENE_INDICES = 1 << PlayerIdentity.INDEX_BITS;
+
+	private final Client client;
+
+	private boolean captured;
+	private int tick;
+	private Player localPlayer;
+	private int localIdentity = PlayerIdentity.NONE;
+	private WorldPoint localLocation;
+	private Actor interacting;
+	private Player target;
+	private int targetIdentity = PlayerIdentity.NONE;
+	private String targetName;
+	private int distance = -1;
+
+	/** Per scene index, the player whose interaction was checked this tick, or null. */
+	private final Player[] checkedPlayers = new Player[SCENE_INDICES];
+	private final boolean[] targetingLocal = new boolean[SCENE_INDICES];
+	/** Indices filled this tick, so {@link #invalidate()} drops the player references it holds. */
+	private final int[] checkedIndices = new int[SCENE_INDICES];
+	private int checkedCount;
+
+	/** Per scene index, the player whose name and identity are cached for this tick, or null. */
+	private final Player[] namedPlayers = new Player[SCENE_INDICES];
+	private final String[] names = new String[SCENE_INDICES];
+	private final int[] identities = new int[SCENE_INDICES];
+	/** Indices filled this tick, so {@link #invalidate()} drops the player references it holds. */
+	private final int[] namedIndices = new int[SCENE_INDICES];
+	private int namedCount;
+
+	WorldState(Client client)
+	{
+		this.client = client;
+	}
+
+	/**
+	 * Drops the captured state; call at every game tick so the next read sees the new tick.
+	 */
+	void invalidate()
+	{
+		captured = false;
+		for (int i = 0; i < checkedCount; i++)
+		{
+			checkedPlayers[checkedIndices[i]] = null;
+		}
+		checkedCount = 0;
+		for (int i = 0; i < namedCount; i++)
+		{
+			int index = namedIndices[i];
+			namedPlayers[index] = null;
+			names[index] = null;
+		}
+		namedCount = 0;
+		localPlayer = null;
+		localLocation = null;
+		interacting = null;
+		clearTarget();
+	}
+
+	/**
+	 * Re-reads the local player's interaction, for a swing that may have started at a new target after the
+	 * tick was captured. Positions are kept, so only a changed target costs more client calls.
+	 */
+	void refreshTarget()
+	{
+		if (!captured)
+		{
+			capture();
+			return;
+		}
+		if (localPlayer == null)
+		{
+			return;
+		}
+
+		Actor current = localPlayer.getInteracting();
+		if (current != interacting)
+		{
+			captureTarget(current);
+		}
+	}
+
+	int getTick()
+	{
+		ensureCaptured();
+		return tick;
+	}
+
+	/**
+	 * The local player, or null before login or while they are not loaded.
+	 */
+	Player getLocalPlayer()
+	{
+		ensureCaptured();
+		return localPlayer;
+	}
+
+	int getLocalIdentity()
+	{
+		ensureCaptured();
+		return localIdentity;
+	}
+
+	WorldPoint getLocalLocation()
+	{
+		ensureCaptured();
+		return localLocation;
+	}
+
+	/**
+	 * What the local player is interacting with, player or not, or null.
+	 */
+	Actor getInteracting()
+	{
+		ensureCaptured();
+		return interacting;
+	}
+
+	/**
+	 * The player the local player is interacting with, or null if they are interacting with no player.
+	 */
+	Player getTarget()
+	{
+		ensureCaptured();
+		return target;
+	}
+
+	/**
+	 * {@link PlayerIdentity} of {@link #getTarget()}, or {@link PlayerIdentity#NONE} if there is none or
+	 * their name is not loaded.
+	 */
+	int getTargetIdentity()
+	{
+		ensureCaptured();
+		return targetIdentity;
+	}
+
+	String getTargetName()
+	{
+		ensureCaptured();
+		return targetName;
+	}
+
+	/**
+	 * Chebyshev distance in tiles between the local player and {@link #getTarget()}, or -1 if either
+	 * location is unknown.
+	 */
+	int getDistance()
+	{
+		ensureCaptured();
+		return distance;
+	}
+
+	/**
+	 * {@code player}'s name, read from the client once per tick.
+	 */
+	String getName(Player player)
+	{
+		return names[name(player)];
+	}
+
+	/**
+	 * {@link PlayerIdentity} of {@code player}, or {@link PlayerIdentity#NONE} if their name is not loaded;
+	 * computed once per tick.
+	 */
+	int getIdentity(Player player)
+	{
+		return identities[name(player)];
+	}
+
+	/**
+	 * Whether {@code player} is interacting with the local player, read once per tick; false while there is
+	 * no local player.
+	 */
+	boolean isTargetingLocal(Player player)
+	{
+		ensureCaptured();
+		if (localPlayer == null)
+		{
+			return false;
+		}
+
+		int index = index(player);
+		if (checkedPlayers[index] != player)
+		{
+			if (checkedPlayers[index] == null)
+			{
+				checkedIndices[checkedCount++] = index;
+			}
+			checkedPlayers[index] = player;
+			targetingLocal[index] = player.getInteracting() == localPlayer;
+		}
+		return targetingLocal[index];
+	}
+
+	/**
+	 * The player with {@code identity}, or null if they left the scene, died, or their scene index now belongs
+	 * to someone else.
+	 */
+	Player findPlayer(int identity)
+	{
+		if (identity == PlayerIdentity.NONE)
+		{
+			return null;
+		}
+		if (identity == getTargetIdentity())
+		{
+			return target.isDead() ? null : target;
+		}
+
+		WorldView worldView = client.getTopLevelWorldView();
+		if (worldView == null)
+		{
+			return null;
+		}
+
+		Player player = worldView.players().byIndex(PlayerIdentity.index(identity));
+		if (player == null || player.isDead() || getIdentity(player) != identity)
+		{
+			return null;
+		}
+		return player;
+	}
+
+	/**
+	 * Chebyshev distance in tiles, or -1 if either point is null.
+	 */
+	static int distance(WorldPoint from, WorldPoint to)
+	{
+		if (from == null || to == null)
+		{
+			return -1;
+		}
+
+		int dx = Math.abs(from.getX() - to.getX());
+		int dy = Math.abs(from.getY() - to.getY());
+		return Math.max(dx, dy);
+	}
+
+	private void ensureCaptured()
+	{
+		if (!captured)
+		{
+			capture();
+		}
+	}
+
+	private void capture()
+	{
+		captured = true;
+		tick = client.getTickCount();
+		localPlayer = client.getLocalPlayer();
+		if (localPlayer == null)
+		{
+			localIdentity = PlayerIdentity.NONE;
+			localLocation = null;
+			interacting = null;
+			clearTarget();
+			return;
+		}
+
+		localIdentity = getIdentity(localPlayer);
+		// The client builds a new WorldPoint per call, so each location is read once per tick.
+		localLocation = localPlayer.getWorldLocation();
+		captureTarget(localPlayer.getInteracting());
+	}
+
+	private void captureTarget(Actor current)
+	{
+		interacting = current;
+		if (!(current instanceof Player))
+		{
+			clearTarget();
+			return;
+		}
+
+		target = (Player) current;
+		targetName = getName(target);
+		targetIdentity = getIdentity(target);
+		distance = distance(localLocation, target.getWorldLocation());
+	}
+
+	/**
+	 * Returns {@code player}'s scene index after making sure their name and identity are cached for the tick.
+	 */
+	private int name(Player player)
+	{
+		int index = index(player);
+		if (namedPlayers[index] == player)
+		{
+			return index;
+		}
+
+		if (namedPlayers[index] == null)
+		{
+			namedIndices[namedCount++] = index;
+		}
+		String name = player.getName();
+		namedPlayers[index] = player;
+		names[index] = name;
+		identities[index] = name == null ? PlayerIdentity.NONE : PlayerIdentity.of(player.getId(), name);
+		return index;
+	}
+
+	private static int index(Player player)
+	{
+		return player.getId() & (SCENE_INDICES - 1);
+	}
+
+	private void clearTarget()
+	{
+		target = null;
+		targetIdentity = PlayerIdentity.NONE;
+		targetName = null;
+		distance = -1;
+	}
+}
@@ -0,0 +1,208 @@
+package com.livepid;
+
+import com.livepid.AttackAnimationBuckets.Bucket;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AttackAnimationBucketsTest
+{
+	// Registrations as they were held in the original boxed map.
+	private static final Map<Integer, Bucket> REFERENCE = new HashMap<>();
+
+	private AttackAnimationBuckets.Definitions previousDefinitions;
+
+	static
+	{
+		reference(Bucket.MELEE,
+			245, 376, 381, 386, 390, 393, 395, 400, 401, 406, 407, 414, 419, 422, 423, 428, 429, 440,
+			923, 1058, 1060, 1062, 1132, 1203, 1378, 1658, 1665, 1667, 1710, 1711, 1872, 2062, 2066, 2067,
+			2068, 2078, 2080, 2081, 2082, 2661, 2890, 3157, 3297, 3298, 3299, 3852, 4198, 4503, 5247, 5865,
+			5870, 6118, 6147, 7004, 7045, 7054, 7055, 7511, 7514, 7515, 7516, 7638, 7639, 7640, 7641, 7642,
+			7643, 7644, 7645, 8010, 8056, 8145, 8288, 8289, 8290, 9171, 9471, 9544, 9963, 10172, 10173, 10989,
+			11124
+		);
+		reference(Bucket.RANGED_STANDARD,
+			426, 1074, 2075, 4230, 7552, 7557, 9166, 9168, 9206, 9858, 9964, 10914, 10923
+		);
+		reference(Bucket.RANGED_THROWN,
+			929, 1068, 5061, 7521, 7554, 7617, 7618, 8194, 8195, 8291, 8292, 10656, 11057, 11060
+		);
+		reference(Bucket.RANGED_BALLISTA,
+			7218, 7555, 7556
+		);
+		reference(Bucket.MAGIC,
+			708, 710, 724, 811, 1161, 1163, 1164, 1165, 1166, 1168, 1169, 1576, 8532, 8972, 8977, 9144,
+			9145, 9493, 9961, 10091, 10092, 10501, 11423, 11429, 11430, 12394,
+			711, 727, 763, 1162, 1167, 1978, 1979, 7853, 7854, 7855, 7856
+		);
+	}
+
+	@Test
+	public void registeredIdsMapToSameBucket()
+	{
+		for (Map.Entry<Integer, Bucket> entry : REFERENCE.entrySet())
+		{
+			assertEquals("animation " + entry.getKey(), entry.getValue(), AttackAnimationBuckets.getBucket(entry.getKey()));
+		}
+	}
+
+	@Test
+	public void unregisteredIdsHaveNoBucket()
+	{
+		for (int animationId = -1; animationId <= 0xFFFF; animationId++)
+		{
+			if (!REFERENCE.containsKey(animationId))
+			{
+				assertNull("animation " + animationId, AttackAnimationBuckets.getBucket(animationId));
+			}
+		}
+		assertNull(AttackAnimationBuckets.getBucket(Integer.MIN_VALUE));
+		assertNull(AttackAnimationBuckets.getBucket(Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void parseAcceptsCommentsCommasAndRepeatedBuckets() throws IOException
+	{
+		AttackAnimationBuckets.Definitions definitions = AttackAnimationBuckets.parse(new StringReader(
+			"# header\n\nMELEE 390, 400 # trailing\nMAGIC 1162\nMELEE 401\n"), "test");
+
+		AttackAnimationBuckets.install(definitions);
+		assertEquals(Bucket.MELEE, AttackAnimationBuckets.getBucket(401));
+		assertEquals(Bucket.MAGIC, AttackAnimationBuckets.getBucket(1162));
+		assertNull(AttackAnimationBuckets.getBucket(426));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parseRejectsUnknownBucket() throws IOException
+	{
+		AttackAnimationBuckets.parse(new StringReader("MELE 390\n"), "test");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parseRejectsIdInTwoBuckets() throws IOException
+	{
+		AttackAnimationBuckets.parse(new StringReader("MELEE 390\nMAGIC 390\n"), "test");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parseRejectsIdOutOfRange() throws IOException
+	{
+		AttackAnimationBuckets.parse(new StringReader("MELEE 65535\n"), "test");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parseRejectsDelaysForAnIdInNoBucket() throws IOException
+	{
+		AttackAnimationBuckets.parse(new StringReader("MELEE 390\nDELAY 400 1\n"), "test");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parseRejectsNegativeDelays() throws IOException
+	{
+		AttackAnimationBuckets.parse(new StringReader("MELEE 390\nDELAY 390 1 -1\n"), "test");
+	}
+
+	@Test
+	public void loadedDelayOverrideBeatsTheBucketFormula() throws IOException
+	{
+		File file = File.createTempFile("attack-animations", ".txt");
+		AttackAnimationDefinitionsLoader loader = new AttackAnimationDefinitionsLoader(file);
+		try
+		{
+			Files.write(file.toPath(), "MELEE 390 400\nDELAY 390 1 1 2 # slow swing\n".getBytes(StandardCharsets.UTF_8));
+			loader.poll();
+
+			ExpectedDelayTable delays = AttackAnimationBuckets.getDelayTable();
+			assertEquals(1, delays.expectedOnPidDelay(Bucket.MELEE, 390, 0));
+			assertEquals("the last delay holds for longer distances", 2, delays.expectedOnPidDelay(Bucket.MELEE, 390, 9));
+			assertEquals("other animations keep the bucket formula", 0, delays.expectedOnPidDelay(Bucket.MELEE, 400, 1));
+		}
+		finally
+		{
+			loader.close();
+			file.delete();
+		}
+	}
+
+	@Test
+	public void loaderSwapsOverrideAndFallsBackWhenItBreaksOrGoesAway() throws IOException
+	{
+		File file = File.createTempFile("attack-animations", ".txt");
+		AttackAnimationDefinitionsLoader loader = new AttackAnimationDefinitionsLoader(file);
+		try
+		{
+			Files.write(file.toPath(), "RANGED_THROWN 390\n".getBytes(StandardCharsets.UTF_8));
+			loader.poll();
+			assertEquals(Bucket.RANGED_THROWN, AttackAnimationBuckets.getBucket(390));
+			assertNull(AttackAnimationBuckets.getBucket(1162));
+
+			Files.write(file.toPath(), "RANGED_THROWN 390 nope\n".getBytes(StandardCharsets.UTF_8));
+			loader.poll();
+			assertTrue(AttackAnimationBuckets.isBuiltInInstalled());
+
+			Files.write(file.toPath(), "MAGIC 390\n".getBytes(StandardCharsets.UTF_8));
+			loader.poll();
+			assertEquals(Bucket.MAGIC, AttackAnimationBuckets.getBucket(390));
+
+			Files.delete(file.toPath());
+			loader.poll();
+			assertEquals(Bucket.MELEE, AttackAnimationBuckets.getBucket(390));
+		}
+		finally
+		{
+			loader.close();
+			file.delete();
+		}
+	}
+
+	@Test
+	public void pollAfterCloseKeepsTheBuiltInDefinitions() throws IOException
+	{
+		File file = File.createTempFile("attack-animations", ".txt");
+		AttackAnimationDefinitionsLoader loader = new AttackAnimationDefinitionsLoader(file);
+		try
+		{
+			Files.write(file.toPath(), "MAGIC 390\n".getBytes(StandardCharsets.UTF_8));
+			loader.close();
+
+			// Stands in for a poll that was already parsing when close() returned.
+			loader.poll();
+			assertTrue(AttackAnimationBuckets.isBuiltInInstalled());
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	@Before
+	public void saveDefinitions()
+	{
+		previousDefinitions = AttackAnimationBuckets.getDefinitions();
+	}
+
+	@After
+	public void restoreDefinitions()
+	{
+		AttackAnimationBuckets.install(previousDefinitions);
+	}
+
+	private static void reference(Bucket bucket, int... animationIds)
+	{
+		for (int animationId : animationIds)
+		{
+			REFERENCE.put(animationId, bucket);
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package com.livepid;
+
+import net.runelite.api.Hitsplat;
+import net.runelite.api.HitsplatID;
+import net.runelite.api.events.AnimationChanged;
+import net.runelite.api.events.HitsplatApplied;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CombatEventPipelineTest
+{
+	private static final int MELEE_ANIMATION = 390;
+
+	private SimulatedClient client;
+	private SimulatedPlayer local;
+	private SimulatedPlayer opponent;
+	private CombatEventPipeline pipeline;
+	private final RecordingConsumer first = new RecordingConsumer();
+	private final RecordingConsumer second = new RecordingConsumer();
+
+	@Before
+	public void setUp()
+	{
+		client = new SimulatedClient();
+		local = new SimulatedPlayer(0, "Local", 3200, 3200).setAnimation(MELEE_ANIMATION);
+		opponent = new SimulatedPlayer(1, "Opponent", 3201, 3200).setAnimation(MELEE_ANIMATION);
+		local.interactWith(opponent);
+		client.setLocalPlayer(local).addPlayer(opponent);
+		pipeline = new CombatEventPipeline(client.client());
+		pipeline.addConsumer(first);
+		pipeline.addConsumer(second);
+	}
+
+	@Test
+	public void localAttackIsClassifiedOnceForEveryConsumer()
+	{
+		client.setTickCount(7);
+		pipeline.onAnimationChanged(animation(local));
+		pipeline.onAnimationChanged(animation(opponent));
+
+		assertEquals(1, first.attacks);
+		assertEquals(1, second.attacks);
+		assertEquals(AttackAnimationBuckets.Bucket.MELEE, first.lastBucket);
+		assertEquals(7, first.lastTick);
+	}
+
+	@Test
+	public void hitsplatsAreClassifiedByDirection()
+	{
+		pipeline.onHitsplatApplied(hitsplat(opponent, HitsplatID.DAMAGE_ME));
+		assertTrue(first.lastOutgoing);
+		assertFalse(first.lastIncoming);
+		assertEquals(PlayerIdentity.of(1, "Opponent"), first.lastVictimIdentity);
+
+		pipeline.onHitsplatApplied(hitsplat(local, HitsplatID.DAMAGE_OTHER));
+		assertFalse(first.lastOutgoing);
+		assertTrue(first.lastIncoming);
+		assertEquals(2, second.hitsplats);
+	}
+
+	@Test
+	public void preFilterDropsHitsplatsNotInvolvingTheLocalPlayer()
+	{
+		SimulatedPlayer bystander = new SimulatedPlayer(2, "Bystander", 3210, 3200);
+		SimulatedPlayer attacker = new SimulatedPlayer(3, "Attacker", 3199, 3200);
+		attacker.interactWith(local);
+		client.addPlayer(bystander).addPlayer(attacker);
+		pipeline.onGameTick();
+
+		pipeline.onHitsplatApplied(hitsplat(bystander, HitsplatID.DAMAGE_OTHER));
+		pipeline.onHitsplatApplied(hitsplat(bystander, HitsplatID.POISON));
+		assertEquals(0, first.hitsplats);
+
+		pipeline.onHitsplatApplied(hitsplat(attacker, HitsplatID.DAMAGE_OTHER));
+		assertTrue(first.lastOutgoing);
+		pipeline.onHitsplatApplied(hitsplat(bystander, HitsplatID.DAMAGE_ME));
+		assertTrue(first.lastOutgoing);
+		pipeline.onHitsplatApplied(hitsplat(local, HitsplatID.POISON));
+		assertTrue(first.lastIncoming);
+		assertEquals(3, first.hitsplats);
+	}
+
+	private static AnimationChanged animation(SimulatedPlayer actor)
+	{
+		AnimationChanged event = new AnimationChanged();
+		event.setActor(actor.player());
+		return event;
+	}
+
+	private static HitsplatApplied hitsplat(SimulatedPlayer victim, int type)
+	{
+		HitsplatApplied event = new HitsplatApplied();
+		event.setActor(victim.player());
+		event.setHitsplat(new Hitsplat(type, 10, 0));
+		return event;
+	}
+
+	private static final class RecordingConsumer implements CombatEventPipeline.Consumer
+	{
+		private int attacks;
+		private int hitsplats;
+		private AttackAnimationBuckets.Bucket lastBucket;
+		private int lastTick;
+		private int lastVictimIdentity;
+		private boolean lastOutgoing;
+		private boolean lastIncoming;
+
+		@Override
+		public void onLocalAttack(CombatEventPipeline.LocalAttack attack)
+		{
+			attacks++;
+			lastBucket = attack.getBucket();
+			lastTick = attack.getTick();
+		}
+
+		@Override
+		public void onHitsplat(CombatEventPipeline.ClassifiedHitsplat hitsplat)
+		{
+			hitsplats++;
+			lastVictimIdentity = hitsplat.getVictimIdentity();
+			lastOutgoing = hitsplat.isOutgoing();
+			lastIncoming = hitsplat.isIncoming();
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package com.livepid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class DetectionMetricsTest
+{
+	@Test
+	public void percentileCoversTheRequestedShare()
+	{
+		DetectionMetrics metrics = new DetectionMetrics();
+		assertEquals(-1, metrics.getTicksToFirstResolutionPercentile(0.5));
+
+		for (int ticks : new int[]{1, 1, 2, 3, 8})
+		{
+			metrics.recordTicksToFirstResolution(ticks);
+		}
+
+		assertEquals(1, metrics.getTicksToFirstResolutionPercentile(0.4));
+		assertEquals(2, metrics.getTicksToFirstResolutionPercentile(0.5));
+		assertEquals(8, metrics.getTicksToFirstResolutionPercentile(1.0));
+	}
+
+	@Test
+	public void slowResolutionsShareTheLastBucket()
+	{
+		DetectionMetrics metrics = new DetectionMetrics();
+		metrics.recordTicksToFirstResolution(500);
+
+		assertEquals(1, metrics.getTicksToFirstResolution(DetectionMetrics.MAX_RESOLUTION_TICKS));
+	}
+
+	@Test
+	public void copyIsIndependentOfLaterRecords()
+	{
+		DetectionMetrics metrics = new DetectionMetrics();
+		metrics.recordOutcome(DetectionMetrics.Outcome.EXPIRED, AttackAnimationBuckets.Bucket.MAGIC);
+		DetectionMetrics copy = metrics.copy();
+		metrics.recordOutcome(DetectionMetrics.Outcome.EXPIRED, AttackAnimationBuckets.Bucket.MAGIC);
+		metrics.recordUnmatchedHitsplat();
+
+		assertEquals(1, copy.getCount(DetectionMetrics.Outcome.EXPIRED, AttackAnimationBuckets.Bucket.MAGIC));
+		assertEquals(0, copy.getUnmatchedHitsplats());
+		assertTrue(copy.formatSummary().contains("unmatched_hitsplats 0"));
+	}
+}
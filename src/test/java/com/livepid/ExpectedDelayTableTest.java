@@ -0,0 +1,82 @@
+package com.livepid;
+
+import java.util.Collections;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+public class ExpectedDelayTableTest
+{
+	private static final int MELEE_ANIMATION = 390;
+	private static final int MAGIC_ANIMATION = 1162;
+	private static final ExpectedDelayTable BUCKET_FORMULAS = new ExpectedDelayTable(Collections.emptyMap());
+
+	@Test
+	public void matchesBucketFormulasAtEveryDistance()
+	{
+		for (AttackAnimationBuckets.Bucket bucket : AttackAnimationBuckets.Bucket.values())
+		{
+			for (int distance = 0; distance <= ExpectedDelayTable.MAX_DISTANCE; distance++)
+			{
+				assertEquals(bucket + " at " + distance, referenceDelay(bucket, distance),
+					BUCKET_FORMULAS.expectedOnPidDelay(bucket, MELEE_ANIMATION, distance));
+			}
+		}
+	}
+
+	@Test
+	public void clampsDistancesPastTheTable()
+	{
+		for (AttackAnimationBuckets.Bucket bucket : AttackAnimationBuckets.Bucket.values())
+		{
+			int last = BUCKET_FORMULAS.expectedOnPidDelay(bucket, -1, ExpectedDelayTable.MAX_DISTANCE);
+			assertEquals(last, BUCKET_FORMULAS.expectedOnPidDelay(bucket, -1, ExpectedDelayTable.MAX_DISTANCE + 1));
+			assertEquals(last, BUCKET_FORMULAS.expectedOnPidDelay(bucket, -1, Integer.MAX_VALUE));
+		}
+	}
+
+	@Test
+	public void animationOverrideReplacesItsBucketRow()
+	{
+		ExpectedDelayTable table = new ExpectedDelayTable(
+			Collections.singletonMap(MAGIC_ANIMATION, distance -> 2 + distance / 4));
+
+		assertEquals(2, table.expectedOnPidDelay(AttackAnimationBuckets.Bucket.MAGIC, MAGIC_ANIMATION, 1));
+		assertEquals(4, table.expectedOnPidDelay(AttackAnimationBuckets.Bucket.MAGIC, MAGIC_ANIMATION, 8));
+		assertEquals("other animations keep the bucket row", 2,
+			table.expectedOnPidDelay(AttackAnimationBuckets.Bucket.MAGIC, 1163, 2));
+		assertSame(table.delays(AttackAnimationBuckets.Bucket.MELEE, MELEE_ANIMATION),
+			table.delays(AttackAnimationBuckets.Bucket.MELEE, 99_999));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNegativeDelays()
+	{
+		new ExpectedDelayTable(Collections.singletonMap(MAGIC_ANIMATION, distance -> -1));
+	}
+
+	/**
+	 * The formulas the detector used before the table existed.
+	 */
+	private static int referenceDelay(AttackAnimationBuckets.Bucket bucket, int distance)
+	{
+		switch (bucket)
+		{
+			case MELEE:
+				return 0;
+			case MAGIC:
+				return 1 + (int) Math.floor((1.0 + distance) / 3.0);
+			case RANGED_THROWN:
+				return 1 + (int) Math.floor(distance / 6.0);
+			case RANGED_BALLISTA:
+				if (distance == 3 || distance == 4)
+				{
+					return 1;
+				}
+				return 1 + (int) Math.floor((3.0 + distance) / 6.0);
+			case RANGED_STANDARD:
+			default:
+				return 1 + (int) Math.floor((3.0 + distance) / 6.0);
+		}
+	}
+}
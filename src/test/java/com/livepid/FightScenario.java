@@ -0,0 +1,43 @@
+package com.livepid;
+
+/**
+ * Fight shapes {@link FightSimulator} can generate. Every scenario reshuffles PID at random ticks, at a
+ * scenario-specific rate, because a real fight never keeps one order for long.
+ */
+enum FightScenario
+{
+	/** Local player and one opponent, PID reshuffled about every 150 ticks. */
+	ONE_V_ONE(2, 150, false),
+	/** Ten against ten; the local player switches between enemies and everyone else fights too. */
+	TEAM_FIGHT(20, 150, false),
+	/** A 1v1 where PID is reshuffled about every 30 ticks. */
+	PID_SWAPS(2, 30, false),
+	/** A 1v1 with a ring of recoil on the local player, so every hit taken reflects a small hitsplat. */
+	RECOIL(2, 150, true);
+
+	private final int players;
+	private final int meanTicksBetweenPidSwaps;
+	private final boolean recoil;
+
+	FightScenario(int players, int meanTicksBetweenPidSwaps, boolean recoil)
+	{
+		this.players = players;
+		this.meanTicksBetweenPidSwaps = meanTicksBetweenPidSwaps;
+		this.recoil = recoil;
+	}
+
+	int getPlayers()
+	{
+		return players;
+	}
+
+	int getMeanTicksBetweenPidSwaps()
+	{
+		return meanTicksBetweenPidSwaps;
+	}
+
+	boolean isRecoil()
+	{
+		return recoil;
+	}
+}
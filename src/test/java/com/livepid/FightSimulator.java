@@ -0,0 +1,679 @@
+package com.livepid;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import net.runelite.api.Hitsplat;
+import net.runelite.api.HitsplatID;
+import net.runelite.api.InventoryID;
+import net.runelite.api.events.AnimationChanged;
+import net.runelite.api.events.HitsplatApplied;
+import net.runelite.api.events.ItemContainerChanged;
+
+/**
+ * Generates deterministic fights on a {@link SimulatedClient} and measures how often {@link PidDetector}
+ * reports the true PID for the player the local player last swung at. The same scenario, seed and tick count
+ * always produce the same events and the same {@link Result}.
+ *
+ * <p>Each player holds a PID rank that is reshuffled at random ticks; the local player is on PID against an
+ * opponent when its rank is lower. Hits land after the on-PID delay of the weapon's {@link Style}, one tick
+ * later when off PID. The styles carry their own copy of the documented hit delay formulas rather than
+ * reading {@link ExpectedDelayTable}, so a wrong delay in the detector's table shows up as lost accuracy
+ * instead of moving the simulated truth with it. Magic casts sometimes splash without a hitsplat, and within
+ * a tick animations and hitsplats are posted in a random order.
+ *
+ * <p>The detector is scored next to a last-sample-wins baseline fed the same samples, which shows the
+ * latest one against the detector's target, as the detector did before it kept decayed evidence.
+ *
+ * <p>{@link #record} also writes the fight as a {@link PidTraceRecorder} trace, with the true PID in a
+ * {@link #TRUTH_EXTENSION} sidecar, for {@link PidTraceEvaluator} corpora.
+ *
+ * <p>Run as a program to print accuracy and throughput for every scenario in both resolution modes:
+ * {@code java -cp <test classpath> com.livepid.FightSimulator [ticks] [seed]}
+ */
+final class FightSimulator
+{
+	static final int LOCAL = 0;
+	/**
+	 * Appended to a trace's file name for its ground truth: lines of {@code <tick> <opponent> <ON_PID|OFF_PID>},
+	 * each giving the true PID against the opponent of the local player's latest swing from that tick on.
+	 */
+	static final String TRUTH_EXTENSION = ".truth";
+
+	private static final int RING_OF_RECOIL = 2550;
+	private static final int BASE_X = 3200;
+	private static final int BASE_Y = 3500;
+	private static final int NO_ANIMATION = -1;
+	/** Scheduled hit ring size; a power of two above the longest hit delay. */
+	private static final int SCHEDULE_TICKS = 16;
+	private static final int MAX_HITS_PER_TICK = 64;
+	private static final int MAX_RANGED_DISTANCE = 7;
+	private static final int MAGIC_SPLASH_PERCENT = 10;
+	/** Chance per tick that a team fighter picks a new enemy. */
+	private static final int TARGET_SWITCH_PERCENT = 2;
+	private static final int MAX_HIT = 40;
+
+	/** One weapon per style. */
+	private static final Weapon[] WEAPONS = {
+		new Weapon(390, 4, Style.MELEE),
+		new Weapon(426, 5, Style.STANDARD_RANGED),
+		new Weapon(929, 3, Style.THROWN),
+		new Weapon(7218, 5, Style.BALLISTA),
+		new Weapon(1162, 5, Style.MAGIC),
+	};
+
+	private final FightScenario scenario;
+	private final Random random;
+	private final SimulatedClient client = new SimulatedClient();
+	private final PidDetector detector;
+	private final CombatEventPipeline combatEvents;
+	private final AnimationChanged animationEvent = new AnimationChanged();
+	private final HitsplatApplied hitsplatEvent = new HitsplatApplied();
+
+	private final SimulatedPlayer[] players;
+	private final int[] pidRank;
+	private final int[] weapon;
+	private final int[] target;
+	private final int[] nextAttackTick;
+
+	private final int[][] scheduledAttackers = new int[SCHEDULE_TICKS][MAX_HITS_PER_TICK];
+	private final int[][] scheduledVictims = new int[SCHEDULE_TICKS][MAX_HITS_PER_TICK];
+	private final int[][] scheduledAmounts = new int[SCHEDULE_TICKS][MAX_HITS_PER_TICK];
+	private final int[] scheduledCounts = new int[SCHEDULE_TICKS];
+	private final int[] tickAttackers;
+	private int tickAttackerCount;
+
+	private final Result result = new Result();
+	private final LastSampleWins lastSampleWins;
+	/** Set only by {@link #record}. */
+	private PidTraceRecorder recorder;
+	private StringBuilder truth;
+	/** Opponent of the local player's latest swing, whose PID the detector should be showing. */
+	private int engaged = -1;
+	private boolean engagedTruthOnPid;
+
+	private FightSimulator(FightScenario scenario, long seed, boolean tickBatched)
+	{
+		this.scenario = scenario;
+		this.random = new Random(seed);
+		int count = scenario.getPlayers();
+		players = new SimulatedPlayer[count];
+		pidRank = new int[count];
+		weapon = new int[count];
+		target = new int[count];
+		nextAttackTick = new int[count];
+		tickAttackers = new int[count];
+		for (int i = 0; i < count; i++)
+		{
+			players[i] = new SimulatedPlayer(i, "Fighter " + i, BASE_X + 2 * i, BASE_Y + (i & 1));
+			client.addPlayer(players[i]);
+			pidRank[i] = i;
+			weapon[i] = random.nextInt(WEAPONS.length);
+			nextAttackTick[i] = 1 + random.nextInt(WEAPONS[weapon[i]].attackSpeed);
+		}
+		client.setLocalPlayer(players[LOCAL]);
+		shufflePid();
+		for (int i = 0; i < count; i++)
+		{
+			pickTarget(i);
+		}
+
+		detector = new PidDetector(client.client());
+		detector.setTickBatched(tickBatched);
+		lastSampleWins = new LastSampleWins(count);
+		detector.setListener(lastSampleWins);
+		combatEvents = new CombatEventPipeline(client.client());
+		combatEvents.addConsumer(detector);
+		if (scenario.isRecoil())
+		{
+			client.equipRing(RING_OF_RECOIL, "Ring of recoil");
+			detector.onItemContainerChanged(new ItemContainerChanged(InventoryID.EQUIPMENT.getId(), client.getEquipment()));
+		}
+	}
+
+	static Result run(FightScenario scenario, long seed, int ticks, boolean tickBatched)
+	{
+		return new FightSimulator(scenario, seed, tickBatched).run(ticks);
+	}
+
+	/**
+	 * Runs a fight like {@link #run} while recording it to {@code trace}, and its ground truth next to it.
+	 */
+	static Result record(FightScenario scenario, long seed, int ticks, Path trace) throws IOException
+	{
+		FightSimulator simulator = new FightSimulator(scenario, seed, false);
+		simulator.recorder = new PidTraceRecorder(simulator.client.client(), trace.toFile());
+		simulator.truth = new StringBuilder();
+		Result result = simulator.run(ticks);
+		simulator.recorder.close();
+		try
+		{
+			if (!simulator.recorder.awaitTermination(1, TimeUnit.MINUTES))
+			{
+				throw new IOException("Trace writer did not finish " + trace);
+			}
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while writing " + trace, ex);
+		}
+		Files.write(Paths.get(trace + TRUTH_EXTENSION), simulator.truth.toString().getBytes(StandardCharsets.UTF_8));
+		return result;
+	}
+
+	private Result run(int ticks)
+	{
+		long start = System.nanoTime();
+		for (int tick = 1; tick <= ticks; tick++)
+		{
+			step(tick);
+		}
+		result.detector.settle();
+		result.lastSampleWins.settle();
+		result.elapsedNanos = System.nanoTime() - start;
+		result.ticks = ticks;
+		return result;
+	}
+
+	private void step(int tick)
+	{
+		client.setTickCount(tick);
+		if (random.nextInt(scenario.getMeanTicksBetweenPidSwaps()) == 0)
+		{
+			shufflePid();
+			result.pidSwaps++;
+		}
+		if (isTeamFight())
+		{
+			for (int i = 0; i < players.length; i++)
+			{
+				if (random.nextInt(100) < TARGET_SWITCH_PERCENT)
+				{
+					pickTarget(i);
+				}
+			}
+		}
+
+		tickAttackerCount = 0;
+		for (int i = 0; i < players.length; i++)
+		{
+			players[i].setAnimation(NO_ANIMATION);
+			if (nextAttackTick[i] <= tick)
+			{
+				tickAttackers[tickAttackerCount++] = i;
+				nextAttackTick[i] = tick + WEAPONS[weapon[i]].attackSpeed;
+			}
+		}
+
+		planAttacks(tick);
+		if (random.nextBoolean())
+		{
+			dispatchAnimations();
+			dispatchHits(tick);
+		}
+		else
+		{
+			dispatchHits(tick);
+			dispatchAnimations();
+		}
+
+		if (recorder != null)
+		{
+			recorder.recordGameTick();
+		}
+		detector.onGameTick(combatEvents.getWorld());
+		combatEvents.onGameTick();
+		measure(tick);
+	}
+
+	/**
+	 * Starts the tick's swings and schedules their hits, before any of the tick's events are posted, so a
+	 * melee hit can be posted ahead of its own animation.
+	 */
+	private void planAttacks(int tick)
+	{
+		for (int i = 0; i < tickAttackerCount; i++)
+		{
+			int attacker = tickAttackers[i];
+			int victim = target[attacker];
+			Weapon attack = WEAPONS[weapon[attacker]];
+			int distance = attack.style == Style.MELEE ? 1 : 1 + random.nextInt(MAX_RANGED_DISTANCE);
+			if (attacker == LOCAL)
+			{
+				SimulatedPlayer local = players[LOCAL];
+				players[victim].moveTo(local.getLocation().getX() + distance, local.getLocation().getY());
+				engage(tick, victim);
+			}
+
+			players[attacker].interactWith(players[victim]).setAnimation(attack.animationId);
+			if (attack.style == Style.MAGIC && random.nextInt(100) < MAGIC_SPLASH_PERCENT)
+			{
+				continue;
+			}
+			int delay = attack.style.onPidDelay(distance) + (pidRank[attacker] < pidRank[victim] ? 0 : 1);
+			schedule(tick + delay, attacker, victim, random.nextInt(MAX_HIT + 1));
+		}
+	}
+
+	private void dispatchAnimations()
+	{
+		for (int i = 0; i < tickAttackerCount; i++)
+		{
+			animationEvent.setActor(players[tickAttackers[i]].player());
+			if (recorder != null)
+			{
+				recorder.recordAnimationChanged(animationEvent);
+			}
+			combatEvents.onAnimationChanged(animationEvent);
+			result.animations++;
+		}
+	}
+
+	private void dispatchHits(int tick)
+	{
+		int slot = tick & (SCHEDULE_TICKS - 1);
+		// Recoil hits are scheduled into this same slot while it is being read, so re-check the count.
+		for (int i = 0; i < scheduledCounts[slot]; i++)
+		{
+			int attacker = scheduledAttackers[slot][i];
+			int victim = scheduledVictims[slot][i];
+			int amount = scheduledAmounts[slot][i];
+			boolean mine = attacker == LOCAL || victim == LOCAL;
+			int type = amount == 0
+				? (mine ? HitsplatID.BLOCK_ME : HitsplatID.BLOCK_OTHER)
+				: (mine ? HitsplatID.DAMAGE_ME : HitsplatID.DAMAGE_OTHER);
+			hitsplatEvent.setActor(players[victim].player());
+			hitsplatEvent.setHitsplat(new Hitsplat(type, amount, 0));
+			if (recorder != null)
+			{
+				recorder.recordHitsplatApplied(hitsplatEvent);
+			}
+			combatEvents.onHitsplatApplied(hitsplatEvent);
+			result.hitsplats++;
+
+			if (scenario.isRecoil() && victim == LOCAL && amount > 0 && attacker != LOCAL)
+			{
+				schedule(tick, LOCAL, attacker, 1 + amount / 10);
+			}
+		}
+		scheduledCounts[slot] = 0;
+	}
+
+	private void schedule(int tick, int attacker, int victim, int amount)
+	{
+		int slot = tick & (SCHEDULE_TICKS - 1);
+		int index = scheduledCounts[slot];
+		if (index == MAX_HITS_PER_TICK)
+		{
+			return;
+		}
+		scheduledAttackers[slot][index] = attacker;
+		scheduledVictims[slot][index] = victim;
+		scheduledAmounts[slot][index] = amount;
+		scheduledCounts[slot] = index + 1;
+	}
+
+	private void engage(int tick, int victim)
+	{
+		boolean truthOnPid = pidRank[LOCAL] < pidRank[victim];
+		if (victim != engaged || truthOnPid != engagedTruthOnPid)
+		{
+			engaged = victim;
+			engagedTruthOnPid = truthOnPid;
+			result.detector.onTruthChanged(tick);
+			result.lastSampleWins.onTruthChanged(tick);
+			if (truth != null)
+			{
+				truth.append(tick).append(' ').append(players[victim].getName()).append(' ')
+					.append(truthOnPid ? PidStatus.ON_PID : PidStatus.OFF_PID).append('\n');
+			}
+		}
+	}
+
+	private void measure(int tick)
+	{
+		if (engaged < 0)
+		{
+			return;
+		}
+
+		// A reshuffle flips the truth without a swing; the detector can only catch up from the next hits.
+		engage(tick, engaged);
+		PidStatus expected = engagedTruthOnPid ? PidStatus.ON_PID : PidStatus.OFF_PID;
+		result.detector.measure(tick, detector.getCurrentPidStatus(), expected);
+		result.lastSampleWins.measure(tick, lastSampleWins.getStatus(), expected);
+	}
+
+	private void pickTarget(int player)
+	{
+		if (!isTeamFight())
+		{
+			target[player] = player == LOCAL ? 1 : LOCAL;
+			return;
+		}
+
+		int half = players.length / 2;
+		int enemyBase = player < half ? half : 0;
+		target[player] = enemyBase + random.nextInt(half);
+	}
+
+	private void shufflePid()
+	{
+		for (int i = pidRank.length - 1; i > 0; i--)
+		{
+			int j = random.nextInt(i + 1);
+			int rank = pidRank[i];
+			pidRank[i] = pidRank[j];
+			pidRank[j] = rank;
+		}
+	}
+
+	private boolean isTeamFight()
+	{
+		return players.length > 2;
+	}
+
+	public static void main(String[] args)
+	{
+		int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+		for (boolean tickBatched : new boolean[]{false, true})
+		{
+			for (FightScenario scenario : FightScenario.values())
+			{
+				Result result = run(scenario, seed, ticks, tickBatched);
+				System.out.printf("%-10s %-9s %s%n", scenario, tickBatched ? "batched" : "immediate", result);
+			}
+		}
+	}
+
+	/**
+	 * Weapon styles by when their hits land, the simulation's truth for hit timing. Each formula gives the
+	 * ticks from the swing to the hitsplat for an attacker on PID at {@code distance} tiles.
+	 */
+	enum Style
+	{
+		MELEE,
+		STANDARD_RANGED,
+		THROWN,
+		BALLISTA,
+		MAGIC;
+
+		int onPidDelay(int distance)
+		{
+			switch (this)
+			{
+				case MELEE:
+					return 0;
+				case THROWN:
+					return 1 + distance / 6;
+				case BALLISTA:
+					return distance == 3 || distance == 4 ? 1 : 1 + (3 + distance) / 6;
+				case MAGIC:
+					return 1 + (1 + distance) / 3;
+				case STANDARD_RANGED:
+				default:
+					return 1 + (3 + distance) / 6;
+			}
+		}
+	}
+
+	private static final class Weapon
+	{
+		private final int animationId;
+		private final int attackSpeed;
+		private final Style style;
+
+		private Weapon(int animationId, int attackSpeed, Style style)
+		{
+			this.animationId = animationId;
+			this.attackSpeed = attackSpeed;
+			this.style = style;
+		}
+	}
+
+	/**
+	 * The status a detector that let every resolved sample overwrite it would show: the latest sample against
+	 * the detector's current target.
+	 */
+	private static final class LastSampleWins implements PidDetector.Listener
+	{
+		private final PidStatus[] lastSamples;
+		private int target = PlayerIdentity.NONE;
+
+		private LastSampleWins(int players)
+		{
+			lastSamples = new PidStatus[players];
+			Arrays.fill(lastSamples, PidStatus.UNKNOWN);
+		}
+
+		@Override
+		public void onTargetChanged(int tick, int identity, String name)
+		{
+			target = identity;
+		}
+
+		@Override
+		public void onSample(int tick, int identity, PidStatus sample, AttackAnimationBuckets.Bucket bucket,
+			boolean predicted)
+		{
+			lastSamples[PlayerIdentity.index(identity)] = sample;
+		}
+
+		private PidStatus getStatus()
+		{
+			return target == PlayerIdentity.NONE ? PidStatus.UNKNOWN : lastSamples[PlayerIdentity.index(target)];
+		}
+	}
+
+	/**
+	 * How one source of the shown status fared against the truth, tick by tick.
+	 */
+	static final class Score
+	{
+		private int correctTicks;
+		private int wrongTicks;
+		private int unknownTicks;
+		private int recoveries;
+		private long recoveryTicks;
+		private int settles;
+		private long settleTicks;
+		/** Tick of the latest new target or PID reshuffle, or -1 before the first swing. */
+		private int truthChangedTick = -1;
+		private boolean recovered;
+		/** Tick the status last turned correct since the truth changed, or -1 while it is not. */
+		private int correctSinceTick = -1;
+
+		private void onTruthChanged(int tick)
+		{
+			settle();
+			truthChangedTick = tick;
+			recovered = false;
+		}
+
+		/**
+		 * Closes the stretch since the truth last changed; if the status ended it correct, the stretch counts
+		 * towards {@link #getMeanSettleTicks()}.
+		 */
+		private void settle()
+		{
+			if (correctSinceTick >= 0)
+			{
+				settles++;
+				settleTicks += correctSinceTick - truthChangedTick;
+			}
+			correctSinceTick = -1;
+		}
+
+		private void measure(int tick, PidStatus reported, PidStatus expected)
+		{
+			if (reported != expected)
+			{
+				correctSinceTick = -1;
+				if (reported == PidStatus.UNKNOWN)
+				{
+					unknownTicks++;
+				}
+				else
+				{
+					wrongTicks++;
+				}
+				return;
+			}
+
+			correctTicks++;
+			if (correctSinceTick < 0)
+			{
+				correctSinceTick = tick;
+			}
+			if (!recovered)
+			{
+				recovered = true;
+				recoveries++;
+				recoveryTicks += tick - truthChangedTick;
+			}
+		}
+
+		private int getMeasuredTicks()
+		{
+			return correctTicks + wrongTicks + unknownTicks;
+		}
+
+		/**
+		 * Share of measured ticks on which the true status was shown.
+		 */
+		double getAccuracy()
+		{
+			return getMeasuredTicks() == 0 ? 0 : (double) correctTicks / getMeasuredTicks();
+		}
+
+		double getUnknownRate()
+		{
+			return getMeasuredTicks() == 0 ? 0 : (double) unknownTicks / getMeasuredTicks();
+		}
+
+		double getWrongRate()
+		{
+			return getMeasuredTicks() == 0 ? 0 : (double) wrongTicks / getMeasuredTicks();
+		}
+
+		/**
+		 * Mean ticks from a new target or a PID reshuffle until the true status is first shown.
+		 */
+		double getMeanRecoveryTicks()
+		{
+			return recoveries == 0 ? 0 : (double) recoveryTicks / recoveries;
+		}
+
+		/**
+		 * Mean ticks from a new target or a PID reshuffle until the true status is shown for good, that is
+		 * until the next change; stretches that end on a wrong or unknown status are left out.
+		 */
+		double getMeanSettleTicks()
+		{
+			return settles == 0 ? 0 : (double) settleTicks / settles;
+		}
+
+		private boolean sameOutcome(Score other)
+		{
+			return correctTicks == other.correctTicks && wrongTicks == other.wrongTicks
+				&& unknownTicks == other.unknownTicks && recoveryTicks == other.recoveryTicks
+				&& settleTicks == other.settleTicks;
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format("accuracy=%.4f wrong=%.4f unknown=%.4f recovery=%.1f settle=%.1f ticks",
+				getAccuracy(), getWrongRate(), getUnknownRate(), getMeanRecoveryTicks(), getMeanSettleTicks());
+		}
+	}
+
+	static final class Result
+	{
+		private final Score detector = new Score();
+		private final Score lastSampleWins = new Score();
+		private int ticks;
+		private int pidSwaps;
+		private long animations;
+		private long hitsplats;
+		private long elapsedNanos;
+
+		/**
+		 * Share of measured ticks on which the detector showed the true status.
+		 */
+		double getAccuracy()
+		{
+			return detector.getAccuracy();
+		}
+
+		double getUnknownRate()
+		{
+			return detector.getUnknownRate();
+		}
+
+		double getWrongRate()
+		{
+			return detector.getWrongRate();
+		}
+
+		/**
+		 * Mean ticks from a new target or a PID reshuffle until the detector shows the true status.
+		 */
+		double getMeanRecoveryTicks()
+		{
+			return detector.getMeanRecoveryTicks();
+		}
+
+		Score getDetectorScore()
+		{
+			return detector;
+		}
+
+		/**
+		 * The last-sample-wins baseline over the same fight.
+		 */
+		Score getLastSampleWinsScore()
+		{
+			return lastSampleWins;
+		}
+
+		int getMeasuredTicks()
+		{
+			return detector.getMeasuredTicks();
+		}
+
+		int getPidSwaps()
+		{
+			return pidSwaps;
+		}
+
+		long getEvents()
+		{
+			return ticks + animations + hitsplats;
+		}
+
+		/**
+		 * Whether two runs produced identical detector outcomes; timing is ignored.
+		 */
+		boolean sameOutcome(Result other)
+		{
+			return detector.sameOutcome(other.detector) && lastSampleWins.sameOutcome(other.lastSampleWins)
+				&& animations == other.animations && hitsplats == other.hitsplats;
+		}
+
+		@Override
+		public String toString()
+		{
+			double seconds = elapsedNanos / 1e9;
+			return String.format("%s swaps=%d animations=%d hitsplats=%d (%.0f ticks/s); last sample wins: %s",
+				detector, pidSwaps, animations, hitsplats, ticks / Math.max(seconds, 1e-9), lastSampleWins);
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package com.livepid;
+
+import java.io.IOException;
+import java.io.StringReader;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FightSimulatorTest
+{
+	private static final long SEED = 1;
+	private static final int TICKS = 50_000;
+
+	private AttackAnimationBuckets.Definitions previousDefinitions;
+
+	@Before
+	public void saveDefinitions()
+	{
+		previousDefinitions = AttackAnimationBuckets.getDefinitions();
+	}
+
+	@After
+	public void restoreDefinitions()
+	{
+		AttackAnimationBuckets.install(previousDefinitions);
+	}
+
+	@Test
+	public void sameSeedReplaysTheSameFight()
+	{
+		for (FightScenario scenario : FightScenario.values())
+		{
+			FightSimulator.Result first = FightSimulator.run(scenario, SEED, 5_000, false);
+			FightSimulator.Result second = FightSimulator.run(scenario, SEED, 5_000, false);
+			assertTrue(scenario + ": " + first + " vs " + second, first.sameOutcome(second));
+		}
+	}
+
+	@Test
+	public void oneVersusOneAccuracy()
+	{
+		assertAccuracy(FightScenario.ONE_V_ONE, 0.95);
+	}
+
+	@Test
+	public void teamFightAccuracy()
+	{
+		// Estimates for enemies not being hit go stale on every reshuffle until they are hit again.
+		assertAccuracy(FightScenario.TEAM_FIGHT, 0.70);
+	}
+
+	@Test
+	public void pidSwapAccuracy()
+	{
+		assertAccuracy(FightScenario.PID_SWAPS, 0.85);
+	}
+
+	@Test
+	public void recoilAccuracy()
+	{
+		assertAccuracy(FightScenario.RECOIL, 0.93);
+	}
+
+	@Test
+	public void estimatorSettlesSoonerThanLastSampleWinsInTeamFights()
+	{
+		// Hitsplats from several attackers on one victim get misattributed, and each stray sample makes a
+		// last-sample-wins indicator flicker before it settles. Without such samples, as in ONE_V_ONE,
+		// last-sample-wins recovers sooner, since the estimator waits for a second contrary sample.
+		for (boolean tickBatched : new boolean[]{false, true})
+		{
+			FightSimulator.Result result = FightSimulator.run(FightScenario.TEAM_FIGHT, SEED, TICKS, tickBatched);
+			FightSimulator.Score estimator = result.getDetectorScore();
+			FightSimulator.Score lastSampleWins = result.getLastSampleWinsScore();
+			assertTrue(result.toString(), estimator.getMeanSettleTicks() < lastSampleWins.getMeanSettleTicks());
+		}
+	}
+
+	@Test
+	public void delayTableThatDisagreesWithTheFightLosesAccuracy() throws IOException
+	{
+		FightSimulator.Result agreeing = FightSimulator.run(FightScenario.ONE_V_ONE, SEED, TICKS, false);
+
+		// The detector's table expects every simulated weapon's hits a tick later than they land.
+		StringBuilder definitions = new StringBuilder()
+			.append("MELEE 390\nRANGED_STANDARD 426\nRANGED_THROWN 929\nRANGED_BALLISTA 7218\nMAGIC 1162\n");
+		appendLateDelays(definitions, 390, FightSimulator.Style.MELEE);
+		appendLateDelays(definitions, 426, FightSimulator.Style.STANDARD_RANGED);
+		appendLateDelays(definitions, 929, FightSimulator.Style.THROWN);
+		appendLateDelays(definitions, 7218, FightSimulator.Style.BALLISTA);
+		appendLateDelays(definitions, 1162, FightSimulator.Style.MAGIC);
+		AttackAnimationBuckets.install(AttackAnimationBuckets.parse(new StringReader(definitions.toString()), "test"));
+		FightSimulator.Result late = FightSimulator.run(FightScenario.ONE_V_ONE, SEED, TICKS, false);
+
+		// On-PID hits now look early and off-PID hits look on time, so the detector is right about half the time.
+		assertTrue(agreeing + " vs " + late, late.getAccuracy() < 0.6);
+		assertTrue(agreeing + " vs " + late, late.getWrongRate() > agreeing.getWrongRate());
+	}
+
+	private static void appendLateDelays(StringBuilder definitions, int animationId, FightSimulator.Style style)
+	{
+		definitions.append("DELAY ").append(animationId);
+		for (int distance = 0; distance <= ExpectedDelayTable.MAX_DISTANCE; distance++)
+		{
+			definitions.append(' ').append(style.onPidDelay(distance) + 1);
+		}
+		definitions.append('\n');
+	}
+
+	private static void assertAccuracy(FightScenario scenario, double minimum)
+	{
+		for (boolean tickBatched : new boolean[]{false, true})
+		{
+			FightSimulator.Result result = FightSimulator.run(scenario, SEED, TICKS, tickBatched);
+			assertTrue(scenario + " " + result, result.getAccuracy() >= minimum);
+		}
+	}
+}
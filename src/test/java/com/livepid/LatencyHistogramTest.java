@@ -0,0 +1,66 @@
+package com.livepid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class LatencyHistogramTest
+{
+	@Test
+	public void bucketBoundsContainTheirValues()
+	{
+		for (long nanos = 0; nanos < 1_000_000; nanos += nanos < 100 ? 1 : 97)
+		{
+			int bucket = LatencyHistogram.bucketOf(nanos);
+			long upper = LatencyHistogram.upperBound(bucket);
+			assertTrue(nanos + " <= " + upper, nanos <= upper);
+			assertTrue(nanos + " within 25% of " + upper, upper <= nanos + nanos / 4 + 1);
+		}
+		assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(LatencyHistogram.bucketOf(Long.MAX_VALUE)));
+	}
+
+	@Test
+	public void reportsPercentilesAndMax()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 1000; i++)
+		{
+			histogram.record(i * 1000L);
+		}
+
+		assertEquals(1000, histogram.getCount());
+		assertEquals(1_000_000, histogram.getMax());
+		assertWithin(500_000, histogram.getPercentile(0.50));
+		assertWithin(990_000, histogram.getPercentile(0.99));
+		assertEquals(1_000_000, histogram.getPercentile(1.0));
+	}
+
+	@Test
+	public void resetEmptiesTheHistogram()
+	{
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(1234);
+		histogram.reset();
+
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getPercentile(0.5));
+	}
+
+	@Test
+	public void disabledProbesRecordNothing()
+	{
+		LatencyProbes probes = new LatencyProbes();
+		probes.stop(LatencyProbes.Probe.GAME_TICK, probes.start());
+		assertEquals(0, probes.getHistogram(LatencyProbes.Probe.GAME_TICK).getCount());
+
+		probes.setEnabled(true);
+		probes.stop(LatencyProbes.Probe.GAME_TICK, probes.start());
+		assertEquals(1, probes.getHistogram(LatencyProbes.Probe.GAME_TICK).getCount());
+	}
+
+	private static void assertWithin(long expected, long actual)
+	{
+		assertTrue(actual + " reported for " + expected, actual >= expected && actual <= expected + expected / 4);
+	}
+}
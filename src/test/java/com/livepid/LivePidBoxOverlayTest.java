@@ -0,0 +1,91 @@
+package com.livepid;
+
+import java.lang.management.ManagementFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LivePidBoxOverlayTest
+{
+	private static final int WARMUP_FRAMES = 50_000;
+	private static final int MEASURED_FRAMES = 20_000;
+	private static final int FRAMES_PER_STATUS = 50;
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+		(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private static final PidSnapshot ON_PID = new PidSnapshot(PidStatus.ON_PID, 1, 67, true, "Opponent", 0, 2, 1, 0);
+	private static final PidSnapshot OFF_PID = new PidSnapshot(PidStatus.OFF_PID, 2, 50, true, "Opponent", 0, 2, 2, 0);
+
+	private LivePidBoxOverlay overlay;
+
+	@Before
+	public void setUp()
+	{
+		LivePidPlugin plugin = new LivePidPlugin(ON_PID, ConfigSnapshot.of(new LivePidConfig()
+		{
+		}));
+		overlay = new LivePidBoxOverlay(plugin);
+	}
+
+	@Test
+	public void confidenceLineFollowsTheSetting()
+	{
+		overlay.updatePanel(ON_PID, true);
+		assertEquals(2, overlay.getPanelComponent().getChildren().size());
+
+		overlay.updatePanel(ON_PID, false);
+		assertEquals(1, overlay.getPanelComponent().getChildren().size());
+	}
+
+	@Test
+	public void unchangedStatusKeepsThePanelChildren()
+	{
+		overlay.updatePanel(ON_PID, true);
+		Object title = overlay.getPanelComponent().getChildren().get(0);
+
+		overlay.updatePanel(ON_PID, true);
+
+		assertSame(title, overlay.getPanelComponent().getChildren().get(0));
+	}
+
+	@Test
+	public void updatingThePanelDoesNotAllocate()
+	{
+		long overhead = measurementOverhead();
+		long bytes = 0;
+		for (int frame = 0; frame < WARMUP_FRAMES + MEASURED_FRAMES; frame++)
+		{
+			// Flip the status now and then, so swapping the children is measured along with unchanged frames.
+			PidSnapshot snapshot = (frame / FRAMES_PER_STATUS) % 2 == 0 ? ON_PID : OFF_PID;
+
+			long before = allocatedBytes();
+			overlay.updatePanel(snapshot, true);
+			long after = allocatedBytes();
+
+			if (frame >= WARMUP_FRAMES)
+			{
+				bytes += Math.max(0, after - before - overhead);
+			}
+		}
+
+		assertEquals("updatePanel bytes/frame", 0, bytes / MEASURED_FRAMES);
+	}
+
+	private static long measurementOverhead()
+	{
+		long overhead = Long.MAX_VALUE;
+		for (int i = 0; i < 10_000; i++)
+		{
+			long before = allocatedBytes();
+			overhead = Math.min(overhead, allocatedBytes() - before);
+		}
+		return overhead;
+	}
+
+	private static long allocatedBytes()
+	{
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
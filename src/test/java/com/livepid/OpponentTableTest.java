@@ -0,0 +1,91 @@
+package com.livepid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+public class OpponentTableTest
+{
+	@Test
+	public void keepsStatePerOpponent()
+	{
+		OpponentTable table = new OpponentTable(4);
+		int first = PlayerIdentity.of(1, "First");
+		int second = PlayerIdentity.of(2, "Second");
+
+		table.engage(first).resolve(PidStatus.ON_PID, 10);
+		table.engage(second).resolve(PidStatus.OFF_PID, 11);
+
+		assertEquals(PidStatus.ON_PID, table.get(first).getStatus());
+		assertEquals(10, table.get(first).getLastResolutionTick());
+		assertEquals(PidStatus.OFF_PID, table.get(second).getStatus());
+		assertSame(table.get(first), table.engage(first));
+		assertEquals(2, table.size());
+	}
+
+	@Test
+	public void evictsLeastRecentlyEngaged()
+	{
+		OpponentTable table = new OpponentTable(3);
+		table.engage(identity(1)).resolve(PidStatus.ON_PID, 1);
+		table.engage(identity(2));
+		table.engage(identity(3));
+		table.engage(identity(1));
+
+		table.engage(identity(4));
+
+		assertNull("2 was the least recent", table.get(identity(2)));
+		assertNotNull(table.get(identity(1)));
+		assertNotNull(table.get(identity(3)));
+		assertEquals(PidStatus.UNKNOWN, table.get(identity(4)).getStatus());
+		assertEquals(PidStatus.ON_PID, table.get(identity(1)).getStatus());
+		assertEquals(3, table.size());
+	}
+
+	@Test
+	public void staysBoundedUnderChurn()
+	{
+		OpponentTable table = new OpponentTable(OpponentTable.DEFAULT_CAPACITY);
+		for (int i = 0; i < 100_000; i++)
+		{
+			table.engage(identity(i % 2048 + (i / 2048) * 7));
+			// Keep one regular opponent recent so it survives every eviction.
+			table.engage(identity(5000));
+		}
+
+		assertEquals(OpponentTable.DEFAULT_CAPACITY, table.size());
+		assertNotNull(table.get(identity(5000)));
+
+		// Every tracked key must still be reachable after the deletions reshuffled the probe chains.
+		int found = 0;
+		for (int i = 0; i < 200_000; i++)
+		{
+			if (table.get(identity(i)) != null)
+			{
+				found++;
+			}
+		}
+		assertEquals(OpponentTable.DEFAULT_CAPACITY, found);
+	}
+
+	@Test
+	public void clearForgetsEveryone()
+	{
+		OpponentTable table = new OpponentTable(2);
+		table.engage(identity(1));
+		table.engage(identity(2));
+
+		table.clear();
+
+		assertEquals(0, table.size());
+		assertNull(table.get(identity(1)));
+		assertEquals(PidStatus.UNKNOWN, table.engage(identity(1)).getStatus());
+	}
+
+	private static int identity(int n)
+	{
+		return PlayerIdentity.of(n & 0x7FF, "Player " + n);
+	}
+}
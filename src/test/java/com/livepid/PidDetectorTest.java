@@ -0,0 +1,484 @@
+package com.livepid;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import net.runelite.api.Hitsplat;
+import net.runelite.api.HitsplatID;
+import net.runelite.api.events.AnimationChanged;
+import net.runelite.api.events.HitsplatApplied;
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PidDetectorTest
+{
+	private static final int MELEE_ANIMATION = 390;
+	private static final int MAGIC_ANIMATION = 1162;
+	private static final int RING_OF_RECOIL = 2550;
+	private static final int WARMUP_TICKS = 50_000;
+	private static final int MEASURED_TICKS = 20_000;
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+		(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private SimulatedClient client;
+	private SimulatedPlayer local;
+	private SimulatedPlayer opponent;
+	private PidDetector detector;
+	private CombatEventPipeline combatEvents;
+
+	@Before
+	public void setUp()
+	{
+		client = new SimulatedClient();
+		local = new SimulatedPlayer(0, "Local", 3200, 3200).setAnimation(MELEE_ANIMATION);
+		opponent = new SimulatedPlayer(1, "Opponent", 3201, 3200);
+		local.interactWith(opponent);
+		opponent.interactWith(local);
+		client.setLocalPlayer(local).addPlayer(opponent);
+		detector = new PidDetector(client.client());
+		combatEvents = new CombatEventPipeline(client.client());
+		combatEvents.addConsumer(detector);
+	}
+
+	@Test
+	public void meleeHitOnSwingTickIsOnPid()
+	{
+		swing(10);
+		hit(10, opponent, 12);
+
+		assertEquals(PidStatus.ON_PID, detector.getCurrentPidStatus());
+	}
+
+	@Test
+	public void meleeHitOneTickLateIsOffPid()
+	{
+		swing(10);
+		tick(10);
+		hit(11, opponent, 12);
+
+		assertEquals(PidStatus.OFF_PID, detector.getCurrentPidStatus());
+	}
+
+	@Test
+	public void loadedDelayOverrideDecidesThePidState() throws IOException
+	{
+		AttackAnimationBuckets.Definitions previousDefinitions = AttackAnimationBuckets.getDefinitions();
+		AttackAnimationBuckets.install(AttackAnimationBuckets.parse(
+			new StringReader("MELEE 390\nDELAY 390 1\n"), "test"));
+		try
+		{
+			swing(10);
+			tick(10);
+			hit(11, opponent, 12);
+
+			// One tick late is OFF PID by the melee formula, but ON PID for a one-tick override.
+			assertEquals(PidStatus.ON_PID, detector.getCurrentPidStatus());
+		}
+		finally
+		{
+			AttackAnimationBuckets.install(previousDefinitions);
+		}
+	}
+
+	@Test
+	public void resolutionsAreCountedForTheSnapshot()
+	{
+		swing(10);
+		hit(10, opponent, 12);
+		tick(10);
+		swing(14);
+		tick(14);
+		hit(15, opponent, 12);
+
+		assertEquals(1, detector.getOnPidSamples());
+		assertEquals(1, detector.getOffPidSamples());
+		// The OFF PID sample was taken when tick 14 ended without a hit, not when the late hit arrived.
+		assertEquals(14, detector.getLastResolutionTick());
+		assertEquals("Opponent", detector.getCurrentTargetName());
+		// ON then OFF leaves the evidence level, which shows as UNKNOWN rather than ON at 0%.
+		assertEquals(PidStatus.UNKNOWN, detector.getCurrentPidStatus());
+		assertEquals(2, detector.getStatusVersion());
+		assertEquals(0.0f, detector.getCurrentConfidence(), 0.0f);
+	}
+
+	@Test
+	public void swingOutcomesAreCountedByBucket()
+	{
+		swing(10);
+		tick(10);
+		hit(11, opponent, 12);
+		swing(14);
+		for (int tick = 14; tick < 30; tick++)
+		{
+			tick(tick);
+		}
+
+		DetectionMetrics metrics = detector.getMetrics();
+		assertEquals(1, metrics.getCount(DetectionMetrics.Outcome.RESOLVED_OFF, AttackAnimationBuckets.Bucket.MELEE));
+		assertEquals(1, metrics.getCount(DetectionMetrics.Outcome.PREDICTED_OFF, AttackAnimationBuckets.Bucket.MELEE));
+		assertEquals(0, metrics.getCount(DetectionMetrics.Outcome.RESOLVED_ON));
+		assertEquals(1, metrics.getTicksToFirstResolution(0));
+	}
+
+	@Test
+	public void offPidIsPredictedWhenTheOnPidTickPassesWithoutAHit()
+	{
+		swing(10);
+		tick(10);
+
+		assertEquals(PidStatus.OFF_PID, detector.getCurrentPidStatus());
+		assertEquals(10, detector.getLastResolutionTick());
+
+		hit(11, opponent, 12);
+
+		// The late hit confirms the prediction without adding a second sample.
+		assertEquals(1, detector.getOffPidSamples());
+		assertEquals(1, detector.getMetrics().getCount(DetectionMetrics.Outcome.RESOLVED_OFF));
+	}
+
+	@Test
+	public void magicIsNotPredictedBecauseSplashesShowNoHitsplat()
+	{
+		local.setAnimation(MAGIC_ANIMATION);
+		opponent.moveTo(3205, 3200);
+
+		swing(10);
+		for (int tick = 10; tick < 14; tick++)
+		{
+			tick(tick);
+		}
+
+		assertEquals(PidStatus.UNKNOWN, detector.getCurrentPidStatus());
+	}
+
+	@Test
+	public void hitsplatBeforeSwingInSameTickIsMatched()
+	{
+		hit(10, opponent, 12);
+		swing(10);
+
+		assertEquals(PidStatus.ON_PID, detector.getCurrentPidStatus());
+	}
+
+	@Test
+	public void overlappingSwingsEachKeepTheirAttempt()
+	{
+		// Magic at distance 5 lands 3 ticks after the cast on PID.
+		local.setAnimation(MAGIC_ANIMATION);
+		opponent.moveTo(3205, 3200);
+
+		swing(10);
+		tick(10);
+		tick(11);
+		swing(12);
+		tick(12);
+		tick(13);
+		hit(14, opponent, 20);
+
+		// A single pending sample would have paired this hit with the second cast and stayed UNKNOWN.
+		assertEquals(PidStatus.OFF_PID, detector.getCurrentPidStatus());
+
+		tick(14);
+		hit(15, opponent, 20);
+
+		// The second cast resolved on its own; one contrary sample does not flip the estimate to ON, but
+		// leaves it without a side.
+		assertEquals(1, detector.getOnPidSamples());
+		assertEquals(1, detector.getOffPidSamples());
+		assertEquals(PidStatus.UNKNOWN, detector.getCurrentPidStatus());
+	}
+
+	@Test
+	public void twoContrarySamplesFlipTheStatus()
+	{
+		for (int tick = 10; tick < 30; tick += 4)
+		{
+			swing(tick);
+			hit(tick, opponent, 12);
+			tick(tick);
+		}
+		assertEquals(PidStatus.ON_PID, detector.getCurrentPidStatus());
+
+		swing(30);
+		tick(30);
+		hit(31, opponent, 12);
+		assertEquals("a lone late hitsplat does not flip", PidStatus.ON_PID, detector.getCurrentPidStatus());
+
+		swing(34);
+		tick(34);
+		hit(35, opponent, 12);
+		assertEquals(PidStatus.OFF_PID, detector.getCurrentPidStatus());
+	}
+
+	@Test
+	public void swingAfterTargetingEndsUsesTargetFromScene()
+	{
+		tick(9);
+		local.setInteracting(null);
+		swing(10);
+		hit(10, opponent, 12);
+
+		assertEquals(PidStatus.ON_PID, detector.getCurrentPidStatus());
+	}
+
+	@Test
+	public void targetIndexReusedByAnotherPlayerIsNotMatched()
+	{
+		tick(9);
+		local.setInteracting(null);
+		client.removePlayer(opponent);
+		SimulatedPlayer newcomer = new SimulatedPlayer(opponent.getId(), "Newcomer", 3201, 3200);
+		client.addPlayer(newcomer);
+
+		swing(10);
+		hit(10, newcomer, 12);
+
+		assertEquals(PidStatus.UNKNOWN, detector.getCurrentPidStatus());
+	}
+
+	@Test
+	public void hitsplatOnPlayerWithSameNameDifferentIndexIsNotMatched()
+	{
+		SimulatedPlayer namesake = new SimulatedPlayer(2, "Opponent", 3201, 3201);
+		client.addPlayer(namesake);
+
+		swing(10);
+		hit(10, namesake, 12);
+
+		assertEquals(PidStatus.UNKNOWN, detector.getCurrentPidStatus());
+	}
+
+	@Test
+	public void switchingBackToAnOpponentRestoresTheirStatus()
+	{
+		SimulatedPlayer second = new SimulatedPlayer(2, "Second", 3200, 3201);
+		client.addPlayer(second);
+
+		swing(10);
+		hit(10, opponent, 12);
+		tick(10);
+		assertEquals(PidStatus.ON_PID, detector.getCurrentPidStatus());
+
+		local.interactWith(second);
+		tick(11);
+		assertEquals("nothing learned against the new target yet", PidStatus.UNKNOWN, detector.getCurrentPidStatus());
+		swing(12);
+		tick(12);
+		hit(13, second, 12);
+		assertEquals(PidStatus.OFF_PID, detector.getCurrentPidStatus());
+
+		local.interactWith(opponent);
+		tick(13);
+		assertEquals(PidStatus.ON_PID, detector.getCurrentPidStatus());
+		assertEquals(1, detector.getOnPidSamples());
+		assertEquals(0, detector.getOffPidSamples());
+	}
+
+	@Test
+	public void hitOnPreviousTargetDoesNotChangeCurrentStatus()
+	{
+		SimulatedPlayer second = new SimulatedPlayer(2, "Second", 3201, 3201);
+		client.addPlayer(second);
+
+		swing(10);
+		local.interactWith(second);
+		tick(10);
+		hit(11, opponent, 12);
+
+		assertEquals(PidStatus.UNKNOWN, detector.getCurrentPidStatus());
+
+		local.interactWith(opponent);
+		tick(11);
+		assertEquals(PidStatus.OFF_PID, detector.getCurrentPidStatus());
+	}
+
+	@Test
+	public void recoilSizedHitsplatIsIgnoredWithRecoilEquipped()
+	{
+		client.equipRing(RING_OF_RECOIL, "Ring of recoil");
+		swing(10);
+		hit(10, opponent, 3);
+		tick(10);
+
+		// Neither an ON PID sample nor an OFF PID prediction for the hit that was hidden.
+		assertEquals(PidStatus.UNKNOWN, detector.getCurrentPidStatus());
+	}
+
+	@Test
+	public void batchedTickResolvesOnlyWhenTheTickEnds()
+	{
+		detector.setTickBatched(true);
+		hit(10, opponent, 12);
+		swing(10);
+		assertEquals(PidStatus.UNKNOWN, detector.getCurrentPidStatus());
+
+		tick(10);
+		assertEquals(PidStatus.ON_PID, detector.getCurrentPidStatus());
+		assertEquals(10, detector.getLastResolutionTick());
+	}
+
+	@Test
+	public void batchedResultsDoNotDependOnEventOrder()
+	{
+		// The tick-14 hitsplat is too late for the tick-10 swing; arriving first must not hide it from the new one.
+		int[] onPidSamples = new int[2];
+		for (int order = 0; order < 2; order++)
+		{
+			setUp();
+			detector.setTickBatched(true);
+			swing(10);
+			for (int tick = 10; tick < 14; tick++)
+			{
+				tick(tick);
+			}
+			if (order == 0)
+			{
+				swing(14);
+				hit(14, opponent, 12);
+			}
+			else
+			{
+				hit(14, opponent, 12);
+				swing(14);
+			}
+			tick(14);
+			onPidSamples[order] = detector.getOnPidSamples();
+		}
+
+		assertEquals(1, onPidSamples[0]);
+		assertEquals(1, onPidSamples[1]);
+	}
+
+	@Test
+	public void steadyStateHandlersDoNotAllocate()
+	{
+		assertSteadyStateDoesNotAllocate();
+	}
+
+	@Test
+	public void batchedSteadyStateHandlersDoNotAllocate()
+	{
+		detector.setTickBatched(true);
+		assertSteadyStateDoesNotAllocate();
+	}
+
+	private void assertSteadyStateDoesNotAllocate()
+	{
+		client.equipRing(RING_OF_RECOIL, "Ring of recoil");
+		AnimationChanged swing = animation();
+		HitsplatApplied outgoing = hitsplat(opponent, HitsplatID.DAMAGE_ME, 12);
+		HitsplatApplied recoil = hitsplat(local, HitsplatID.DAMAGE_ME, 2);
+		// Hitsplats between other players: one the pre-filter drops, one it has to classify.
+		SimulatedPlayer attacker = new SimulatedPlayer(2, "Attacker", 3199, 3200).interactWith(local);
+		SimulatedPlayer bystander = new SimulatedPlayer(3, "Bystander", 3210, 3200).interactWith(attacker);
+		client.addPlayer(attacker).addPlayer(bystander);
+		HitsplatApplied[] hitsplats = {
+			outgoing,
+			recoil,
+			hitsplat(bystander, HitsplatID.DAMAGE_OTHER, 7),
+			hitsplat(bystander, HitsplatID.BLOCK_OTHER, 0),
+			hitsplat(attacker, HitsplatID.DAMAGE_OTHER, 9),
+			hitsplat(attacker, HitsplatID.BLOCK_OTHER, 0),
+		};
+
+		combatEvents.onGameTick();
+		long overhead = measurementOverhead();
+		long[] bytes = new long[3];
+		for (int tick = 1; tick <= WARMUP_TICKS + MEASURED_TICKS; tick++)
+		{
+			boolean measured = tick > WARMUP_TICKS;
+			client.setTickCount(tick);
+
+			long before = allocatedBytes();
+			if (tick % 4 == 0)
+			{
+				combatEvents.onAnimationChanged(swing);
+			}
+			long afterAnimation = allocatedBytes();
+			for (HitsplatApplied hitsplat : hitsplats)
+			{
+				combatEvents.onHitsplatApplied(hitsplat);
+			}
+			long afterHitsplats = allocatedBytes();
+			detector.onGameTick(combatEvents.getWorld());
+			long afterTick = allocatedBytes();
+			combatEvents.onGameTick();
+
+			if (measured)
+			{
+				bytes[0] += afterAnimation - before - overhead;
+				bytes[1] += afterHitsplats - afterAnimation - overhead;
+				bytes[2] += afterTick - afterHitsplats - overhead;
+			}
+		}
+
+		assertEquals(PidStatus.ON_PID, detector.getCurrentPidStatus());
+		assertEquals("onAnimationChanged bytes/call", 0, bytes[0] / (MEASURED_TICKS / 4));
+		assertEquals("onHitsplatApplied bytes/call", 0, bytes[1] / (MEASURED_TICKS * hitsplats.length));
+		assertEquals("onGameTick bytes/call", 0, bytes[2] / MEASURED_TICKS);
+	}
+
+	private void swing(int tick)
+	{
+		enterTick(tick);
+		combatEvents.onAnimationChanged(animation());
+	}
+
+	private void hit(int tick, SimulatedPlayer victim, int amount)
+	{
+		enterTick(tick);
+		combatEvents.onHitsplatApplied(hitsplat(victim, HitsplatID.DAMAGE_ME, amount));
+	}
+
+	/**
+	 * Moves to {@code tick} for the next event; a skipped game tick still ends the pipeline's tick state.
+	 */
+	private void enterTick(int tick)
+	{
+		if (client.client().getTickCount() != tick)
+		{
+			client.setTickCount(tick);
+			combatEvents.onGameTick();
+		}
+	}
+
+	private void tick(int tick)
+	{
+		client.setTickCount(tick);
+		detector.onGameTick(combatEvents.getWorld());
+		combatEvents.onGameTick();
+	}
+
+	private AnimationChanged animation()
+	{
+		AnimationChanged event = new AnimationChanged();
+		event.setActor(local.player());
+		return event;
+	}
+
+	private static HitsplatApplied hitsplat(SimulatedPlayer victim, int type, int amount)
+	{
+		HitsplatApplied event = new HitsplatApplied();
+		event.setActor(victim.player());
+		event.setHitsplat(new Hitsplat(type, amount, 0));
+		return event;
+	}
+
+	private static long measurementOverhead()
+	{
+		long overhead = Long.MAX_VALUE;
+		for (int i = 0; i < 10_000; i++)
+		{
+			long before = allocatedBytes();
+			overhead = Math.min(overhead, allocatedBytes() - before);
+		}
+		return overhead;
+	}
+
+	private static long allocatedBytes()
+	{
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
@@ -0,0 +1,85 @@
+package com.livepid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class PidEstimatorTest
+{
+	private static final float EPSILON = 1e-4f;
+
+	@Test
+	public void firstSampleResolves()
+	{
+		PidEstimator estimator = new PidEstimator();
+		assertEquals(PidStatus.UNKNOWN, estimator.getStatus());
+		assertEquals(0, estimator.getConfidence(), EPSILON);
+
+		assertEquals(PidStatus.OFF_PID, estimator.addSample(PidStatus.OFF_PID));
+		assertEquals(2f / 3, estimator.getConfidence(), EPSILON);
+	}
+
+	@Test
+	public void confidenceGrowsWithAStreak()
+	{
+		PidEstimator estimator = new PidEstimator();
+		float previous = 0;
+		for (int i = 0; i < 50; i++)
+		{
+			estimator.addSample(PidStatus.ON_PID);
+			assertTrue(estimator.getConfidence() >= previous);
+			previous = estimator.getConfidence();
+		}
+		assertEquals(5f / 6, previous, EPSILON);
+	}
+
+	@Test
+	public void loneOutlierDoesNotFlipAStreak()
+	{
+		PidEstimator estimator = streak(PidStatus.ON_PID, 3);
+
+		assertEquals(PidStatus.ON_PID, estimator.addSample(PidStatus.OFF_PID));
+		assertEquals(PidStatus.ON_PID, estimator.addSample(PidStatus.ON_PID));
+	}
+
+	@Test
+	public void followsAReshuffleAfterTwoSamples()
+	{
+		PidEstimator estimator = streak(PidStatus.ON_PID, 20);
+
+		assertEquals(PidStatus.ON_PID, estimator.addSample(PidStatus.OFF_PID));
+		assertEquals(PidStatus.OFF_PID, estimator.addSample(PidStatus.OFF_PID));
+	}
+
+	@Test
+	public void balancedEvidenceIsUnknown()
+	{
+		PidEstimator estimator = streak(PidStatus.ON_PID, 1);
+
+		// 0.6 ON against 1 OFF: OFF leads, but not by enough to switch, so neither side is shown.
+		assertEquals(PidStatus.UNKNOWN, estimator.addSample(PidStatus.OFF_PID));
+		assertEquals(0, estimator.getConfidence(), EPSILON);
+		assertEquals(PidStatus.OFF_PID, estimator.addSample(PidStatus.OFF_PID));
+	}
+
+	@Test
+	public void resetForgetsEvidence()
+	{
+		PidEstimator estimator = streak(PidStatus.ON_PID, 5);
+
+		estimator.reset();
+
+		assertEquals(PidStatus.UNKNOWN, estimator.getStatus());
+		assertEquals(PidStatus.OFF_PID, estimator.addSample(PidStatus.OFF_PID));
+	}
+
+	private static PidEstimator streak(PidStatus status, int samples)
+	{
+		PidEstimator estimator = new PidEstimator();
+		for (int i = 0; i < samples; i++)
+		{
+			estimator.addSample(status);
+		}
+		return estimator;
+	}
+}
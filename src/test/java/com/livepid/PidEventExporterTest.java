@@ -0,0 +1,124 @@
+package com.livepid;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import org.junit.Test;
+
+public class PidEventExporterTest
+{
+	private static final int OPPONENT = PlayerIdentity.of(1, "Opponent");
+
+	@Test
+	public void fileStreamHasOneJsonObjectPerEvent() throws Exception
+	{
+		File file = File.createTempFile("events", ".ndjson");
+		PidEventExporter exporter = new PidEventExporter(PidEventSink.FILE, PidEventFormat.NDJSON, file, 0);
+		try
+		{
+			exporter.onTargetChanged(10, OPPONENT, "Quote\"Name");
+			exporter.onSample(12, OPPONENT, PidStatus.OFF_PID, AttackAnimationBuckets.Bucket.MELEE, true);
+			exporter.onStatusChanged(12, OPPONENT, PidStatus.OFF_PID, 0.5f);
+			exporter.drain();
+
+			List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+			assertEquals(3, lines.size());
+			assertEquals("{\"event\":\"target\",\"tick\":10,\"opponent\":" + OPPONENT + ",\"name\":\"Quote\\\"Name\"}",
+				lines.get(0));
+			assertEquals("{\"event\":\"sample\",\"tick\":12,\"opponent\":" + OPPONENT
+				+ ",\"sample\":\"OFF_PID\",\"bucket\":\"MELEE\",\"predicted\":true}", lines.get(1));
+			assertEquals("{\"event\":\"status\",\"tick\":12,\"opponent\":" + OPPONENT
+				+ ",\"status\":\"OFF_PID\",\"confidence\":50}", lines.get(2));
+		}
+		finally
+		{
+			exporter.close();
+			exporter.awaitTermination(5, TimeUnit.SECONDS);
+			file.delete();
+		}
+	}
+
+	@Test
+	public void eventsNobodyReceivesAreCountedAsDropped() throws Exception
+	{
+		int port;
+		try (ServerSocket unused = new ServerSocket(0, 1, InetAddress.getLoopbackAddress()))
+		{
+			port = unused.getLocalPort();
+		}
+		PidEventExporter exporter = new PidEventExporter(PidEventSink.TCP, PidEventFormat.NDJSON, null, port);
+		for (int i = 0; i < PidEventExporter.QUEUE_CAPACITY + 5; i++)
+		{
+			exporter.onStatusChanged(i, OPPONENT, PidStatus.ON_PID, 1);
+		}
+		assertEquals(5, exporter.getDroppedEvents());
+
+		exporter.drain();
+		assertEquals(PidEventExporter.QUEUE_CAPACITY + 5, exporter.getDroppedEvents());
+		exporter.close();
+	}
+
+	@Test
+	public void eventsInABatchThatFailsToWriteAreCountedAsDropped() throws Exception
+	{
+		// Every write to /dev/full fails, after the file opened fine.
+		File full = new File("/dev/full");
+		assumeTrue(full.exists());
+		PidEventExporter exporter = new PidEventExporter(PidEventSink.FILE, PidEventFormat.NDJSON, full, 0);
+		exporter.onTargetChanged(10, OPPONENT, "Opponent");
+		exporter.onStatusChanged(12, OPPONENT, PidStatus.OFF_PID, 0.5f);
+		exporter.onStatusChanged(16, OPPONENT, PidStatus.ON_PID, 0.5f);
+
+		exporter.drain();
+		assertEquals(3, exporter.getDroppedEvents());
+		exporter.close();
+	}
+
+	@Test
+	public void tcpReaderGetsHeaderThenFixedSizeBinaryRecords() throws Exception
+	{
+		try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress()))
+		{
+			PidEventExporter exporter = new PidEventExporter(PidEventSink.TCP, PidEventFormat.BINARY, null,
+				server.getLocalPort());
+			exporter.start();
+			try (Socket reader = server.accept())
+			{
+				exporter.onSample(20, OPPONENT, PidStatus.ON_PID, AttackAnimationBuckets.Bucket.MAGIC, false);
+				exporter.onStatusChanged(20, OPPONENT, PidStatus.ON_PID, 1);
+
+				DataInputStream in = new DataInputStream(reader.getInputStream());
+				assertEquals(PidEventExporter.MAGIC, in.readInt());
+				assertEquals(PidEventExporter.VERSION, in.readUnsignedByte());
+
+				byte[] sample = new byte[PidEventExporter.BINARY_RECORD_BYTES];
+				in.readFully(sample);
+				assertEquals(PidEventExporter.EVENT_SAMPLE, sample[0]);
+				assertEquals(PidStatus.ON_PID.ordinal(), sample[1]);
+				assertEquals(AttackAnimationBuckets.Bucket.MAGIC.ordinal(), sample[2]);
+				assertEquals(0, sample[3]);
+
+				assertEquals(PidEventExporter.EVENT_STATUS, in.readUnsignedByte());
+				assertEquals(PidStatus.ON_PID.ordinal(), in.readUnsignedByte());
+				assertEquals(100, in.readUnsignedByte());
+				assertEquals(0, in.readUnsignedByte());
+				assertEquals(20, in.readInt());
+				assertEquals(OPPONENT, in.readInt());
+			}
+			finally
+			{
+				exporter.close();
+				assertTrue(exporter.awaitTermination(5, TimeUnit.SECONDS));
+			}
+		}
+	}
+}
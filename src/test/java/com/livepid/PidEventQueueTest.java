@@ -0,0 +1,59 @@
+package com.livepid;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class PidEventQueueTest
+{
+	@Test
+	public void recordsComeOutInOfferOrderAcrossTheWrap() throws IOException
+	{
+		PidEventQueue queue = new PidEventQueue(4);
+		List<Integer> ticks = new ArrayList<>();
+		for (int tick = 0; tick < 10; tick++)
+		{
+			assertTrue(queue.offer(PidEventExporter.EVENT_STATUS, tick, 7, 0, 0, null));
+			if (tick % 3 == 2)
+			{
+				queue.drain((type, t, identity, status, detail, name) -> ticks.add(t), 3);
+			}
+		}
+		queue.drain((type, t, identity, status, detail, name) -> ticks.add(t), Integer.MAX_VALUE);
+
+		assertEquals(10, ticks.size());
+		for (int i = 0; i < ticks.size(); i++)
+		{
+			assertEquals(i, (int) ticks.get(i));
+		}
+		assertEquals(0, queue.getDropped());
+	}
+
+	@Test
+	public void fullQueueDropsAndCountsInsteadOfWaiting() throws IOException
+	{
+		PidEventQueue queue = new PidEventQueue(2);
+		assertTrue(queue.offer(PidEventExporter.EVENT_TARGET, 1, 7, 0, 0, "First"));
+		assertTrue(queue.offer(PidEventExporter.EVENT_TARGET, 2, 8, 0, 0, "Second"));
+		assertFalse(queue.offer(PidEventExporter.EVENT_TARGET, 3, 9, 0, 0, "Third"));
+		assertEquals(1, queue.getDropped());
+
+		List<String> names = new ArrayList<>();
+		queue.drain((type, tick, identity, status, detail, name) -> names.add(name), 1);
+		assertTrue(queue.offer(PidEventExporter.EVENT_TARGET, 4, 10, 0, 0, "Fourth"));
+		queue.drain((type, tick, identity, status, detail, name) -> names.add(name), Integer.MAX_VALUE);
+
+		assertEquals("[First, Second, Fourth]", names.toString());
+		assertEquals(0, queue.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void capacityMustBeAPowerOfTwo()
+	{
+		new PidEventQueue(12);
+	}
+}
@@ -0,0 +1,437 @@
+package com.livepid;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scores the detector against a corpus of traces with known PID, in parallel. Every trace is replayed by
+ * its own {@link PidTraceReplayer} and detector in a fork/join leaf, and the per-trace counts are only
+ * merged on the way back up, so the workers share nothing and throughput grows with the cores.
+ *
+ * <p>A trace is scored if it has a {@link FightSimulator#TRUTH_EXTENSION} sidecar. Each scored tick is
+ * counted against the bucket of the local player's latest swing and the distance it was thrown from; the
+ * report gives accuracy, the UNKNOWN rate and the ticks from a PID change to the first correct status.
+ *
+ * <p>Run as a program with a corpus directory, optionally filling it with simulated fights first:
+ * {@code java -cp <test classpath> com.livepid.PidTraceEvaluator <dir> [--generate N] [--ticks T] [--threads K]}
+ */
+final class PidTraceEvaluator
+{
+	/** Distances from this many tiles up share the last row. */
+	static final int MAX_DISTANCE = 10;
+	/** Ticks-to-correct from this many ticks up share the last histogram slot. */
+	static final int MAX_RECOVERY_TICKS = 64;
+
+	private static final AttackAnimationBuckets.Bucket[] BUCKETS = AttackAnimationBuckets.Bucket.values();
+	private static final int CELLS = BUCKETS.length * (MAX_DISTANCE + 1);
+
+	private PidTraceEvaluator()
+	{
+	}
+
+	/**
+	 * Scores every trace with ground truth, using {@code pool} for the replays.
+	 */
+	static Evaluation evaluate(List<Path> traces, ForkJoinPool pool)
+	{
+		return pool.invoke(new EvaluateTask(traces, 0, traces.size()));
+	}
+
+	/**
+	 * Scores one trace against its ground truth, given as {@link FightSimulator#TRUTH_EXTENSION} lines.
+	 */
+	static Evaluation evaluate(byte[] trace, List<String> truth)
+	{
+		Scorer scorer = new Scorer(truth);
+		PidTraceReplayer.replay(trace, scorer);
+		scorer.evaluation.traces = 1;
+		return scorer.evaluation;
+	}
+
+	static Path truthOf(Path trace)
+	{
+		return Paths.get(trace + FightSimulator.TRUTH_EXTENSION);
+	}
+
+	/**
+	 * Records {@code count} simulated fights into {@code directory}, cycling through the scenarios.
+	 */
+	static void generate(Path directory, int count, int ticks, ForkJoinPool pool) throws IOException
+	{
+		Files.createDirectories(directory);
+		FightScenario[] scenarios = FightScenario.values();
+		List<Callable<FightSimulator.Result>> fights = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+		{
+			FightScenario scenario = scenarios[i % scenarios.length];
+			long seed = i;
+			Path trace = directory.resolve(String.format("fight-%05d-%s%s", i, scenario, PidTraceReplayer.TRACE_EXTENSION));
+			fights.add(() -> FightSimulator.record(scenario, seed, ticks, trace));
+		}
+
+		try
+		{
+			for (Future<FightSimulator.Result> fight : pool.invokeAll(fights))
+			{
+				fight.get();
+			}
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while generating traces", ex);
+		}
+		catch (ExecutionException ex)
+		{
+			throw new IOException("Unable to generate traces", ex.getCause());
+		}
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length == 0)
+		{
+			System.err.println("Usage: PidTraceEvaluator <corpus dir> [--generate N] [--ticks T] [--threads K]");
+			System.exit(1);
+		}
+
+		Path directory = Paths.get(args[0]);
+		int generate = 0;
+		int ticks = 20_000;
+		int threads = Runtime.getRuntime().availableProcessors();
+		for (int i = 1; i + 1 < args.length; i += 2)
+		{
+			switch (args[i])
+			{
+				case "--generate":
+					generate = Integer.parseInt(args[i + 1]);
+					break;
+				case "--ticks":
+					ticks = Integer.parseInt(args[i + 1]);
+					break;
+				case "--threads":
+					threads = Integer.parseInt(args[i + 1]);
+					break;
+				default:
+					System.err.println("Unknown option " + args[i]);
+					System.exit(1);
+			}
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try
+		{
+			if (generate > 0)
+			{
+				long start = System.nanoTime();
+				generate(directory, generate, ticks, pool);
+				System.out.printf("Generated %d traces of %d ticks in %.3f s%n", generate, ticks,
+					(System.nanoTime() - start) / 1e9);
+			}
+
+			List<Path> traces = new ArrayList<>();
+			for (Path trace : PidTraceReplayer.findTraces(directory.toString()))
+			{
+				if (Files.isRegularFile(truthOf(trace)))
+				{
+					traces.add(trace);
+				}
+			}
+
+			long start = System.nanoTime();
+			Evaluation evaluation = evaluate(traces, pool);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.print(evaluation.report());
+			System.out.printf("Evaluated %d traces, %d ticks on %d threads in %.3f s (%.1f traces/s, %.0f ticks/s)%n",
+				evaluation.traces, evaluation.replayedTicks, threads, seconds, evaluation.traces / Math.max(seconds, 1e-9),
+				evaluation.replayedTicks / Math.max(seconds, 1e-9));
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Splits a range of traces in halves down to single traces and merges what the halves found.
+	 */
+	private static final class EvaluateTask extends RecursiveTask<Evaluation>
+	{
+		private final List<Path> traces;
+		private final int from;
+		private final int to;
+
+		private EvaluateTask(List<Path> traces, int from, int to)
+		{
+			this.traces = traces;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Evaluation compute()
+		{
+			if (to - from <= 1)
+			{
+				return from == to ? new Evaluation() : evaluateOne(traces.get(from));
+			}
+
+			int middle = (from + to) >>> 1;
+			EvaluateTask left = new EvaluateTask(traces, from, middle);
+			left.fork();
+			Evaluation right = new EvaluateTask(traces, middle, to).compute();
+			return left.join().merge(right);
+		}
+
+		private static Evaluation evaluateOne(Path trace)
+		{
+			try
+			{
+				return evaluate(Files.readAllBytes(trace), Files.readAllLines(truthOf(trace), StandardCharsets.UTF_8));
+			}
+			catch (IOException | RuntimeException ex)
+			{
+				throw new IllegalStateException("Unable to evaluate " + trace, ex);
+			}
+		}
+	}
+
+	/**
+	 * Follows one replay: the truth in force, the latest swing and what the detector shows each tick.
+	 */
+	private static final class Scorer implements PidTraceReplayer.TickObserver
+	{
+		private final List<String> truth;
+		private final Evaluation evaluation = new Evaluation();
+
+		private int nextTruth;
+		private PidStatus expected;
+		/** Tick the truth last changed, until the detector first agrees with it; -1 after. */
+		private int changedTick = -1;
+		private int cell = -1;
+
+		private Scorer(List<String> truth)
+		{
+			this.truth = truth;
+		}
+
+		@Override
+		public void onLocalAttack(CombatEventPipeline.LocalAttack attack)
+		{
+			int distance = attack.getWorld().getDistance();
+			if (distance >= 0)
+			{
+				cell = cell(attack.getBucket(), Math.min(distance, MAX_DISTANCE));
+			}
+		}
+
+		@Override
+		public void onTick(int tick, PidDetector detector)
+		{
+			evaluation.replayedTicks++;
+			advanceTruth(tick);
+			if (expected == null || cell < 0)
+			{
+				return;
+			}
+
+			PidStatus reported = detector.getCurrentPidStatus();
+			evaluation.ticks[cell]++;
+			if (reported == expected)
+			{
+				evaluation.correct[cell]++;
+				if (changedTick >= 0)
+				{
+					evaluation.recoveries[cell]++;
+					evaluation.recoveryTicks[cell] += tick - changedTick;
+					evaluation.recoveryHistogram[cell * (MAX_RECOVERY_TICKS + 1)
+						+ Math.min(tick - changedTick, MAX_RECOVERY_TICKS)]++;
+					changedTick = -1;
+				}
+			}
+			else if (reported == PidStatus.UNKNOWN)
+			{
+				evaluation.unknown[cell]++;
+			}
+		}
+
+		private void advanceTruth(int tick)
+		{
+			while (nextTruth < truth.size())
+			{
+				String line = truth.get(nextTruth);
+				int tickEnd = line.indexOf(' ');
+				if (tickEnd < 0)
+				{
+					// Blank or truncated trailing line.
+					nextTruth++;
+					continue;
+				}
+				int changed = Integer.parseInt(line.substring(0, tickEnd));
+				if (changed > tick)
+				{
+					return;
+				}
+
+				// Opponent names may contain spaces, so the status is read from the end.
+				expected = PidStatus.valueOf(line.substring(line.lastIndexOf(' ') + 1));
+				changedTick = changed;
+				nextTruth++;
+			}
+		}
+	}
+
+	private static int cell(AttackAnimationBuckets.Bucket bucket, int distance)
+	{
+		return bucket.ordinal() * (MAX_DISTANCE + 1) + distance;
+	}
+
+	/**
+	 * Counts per bucket and distance, from one trace or merged from many.
+	 */
+	static final class Evaluation
+	{
+		private final long[] ticks = new long[CELLS];
+		private final long[] correct = new long[CELLS];
+		private final long[] unknown = new long[CELLS];
+		private final long[] recoveries = new long[CELLS];
+		private final long[] recoveryTicks = new long[CELLS];
+		private final long[] recoveryHistogram = new long[CELLS * (MAX_RECOVERY_TICKS + 1)];
+		private int traces;
+		private long replayedTicks;
+
+		/**
+		 * Adds {@code other} into this evaluation and returns it.
+		 */
+		Evaluation merge(Evaluation other)
+		{
+			add(ticks, other.ticks);
+			add(correct, other.correct);
+			add(unknown, other.unknown);
+			add(recoveries, other.recoveries);
+			add(recoveryTicks, other.recoveryTicks);
+			add(recoveryHistogram, other.recoveryHistogram);
+			traces += other.traces;
+			replayedTicks += other.replayedTicks;
+			return this;
+		}
+
+		int getTraces()
+		{
+			return traces;
+		}
+
+		/**
+		 * Ticks scored against the truth, over all buckets and distances.
+		 */
+		long getScoredTicks()
+		{
+			return sum(ticks);
+		}
+
+		double getAccuracy()
+		{
+			return ratio(sum(correct), sum(ticks));
+		}
+
+		double getUnknownRate()
+		{
+			return ratio(sum(unknown), sum(ticks));
+		}
+
+		double getMeanTicksToCorrect()
+		{
+			return ratio(sum(recoveryTicks), sum(recoveries));
+		}
+
+		long getScoredTicks(AttackAnimationBuckets.Bucket bucket, int distance)
+		{
+			return ticks[cell(bucket, distance)];
+		}
+
+		double getAccuracy(AttackAnimationBuckets.Bucket bucket, int distance)
+		{
+			int cell = cell(bucket, distance);
+			return ratio(correct[cell], ticks[cell]);
+		}
+
+		String report()
+		{
+			StringBuilder out = new StringBuilder();
+			out.append(String.format("%-16s %5s %10s %9s %8s %10s %9s%n",
+				"bucket", "dist", "ticks", "accuracy", "unknown", "mean-ttc", "p90-ttc"));
+			for (AttackAnimationBuckets.Bucket bucket : BUCKETS)
+			{
+				for (int distance = 0; distance <= MAX_DISTANCE; distance++)
+				{
+					int cell = cell(bucket, distance);
+					if (ticks[cell] == 0)
+					{
+						continue;
+					}
+					out.append(String.format("%-16s %5s %10d %9.4f %8.4f %10.2f %9s%n", bucket,
+						distance == MAX_DISTANCE ? MAX_DISTANCE + "+" : String.valueOf(distance), ticks[cell],
+						ratio(correct[cell], ticks[cell]), ratio(unknown[cell], ticks[cell]),
+						ratio(recoveryTicks[cell], recoveries[cell]), percentile90(cell)));
+				}
+			}
+			out.append(String.format("%-16s %5s %10d %9.4f %8.4f %10.2f%n", "all", "", getScoredTicks(), getAccuracy(),
+				getUnknownRate(), getMeanTicksToCorrect()));
+			return out.toString();
+		}
+
+		private String percentile90(int cell)
+		{
+			long target = (recoveries[cell] * 9 + 9) / 10;
+			if (target == 0)
+			{
+				return "-";
+			}
+
+			int offset = cell * (MAX_RECOVERY_TICKS + 1);
+			long seen = 0;
+			for (int slot = 0; slot <= MAX_RECOVERY_TICKS; slot++)
+			{
+				seen += recoveryHistogram[offset + slot];
+				if (seen >= target)
+				{
+					return slot == MAX_RECOVERY_TICKS ? MAX_RECOVERY_TICKS + "+" : String.valueOf(slot);
+				}
+			}
+			return MAX_RECOVERY_TICKS + "+";
+		}
+
+		private static void add(long[] into, long[] from)
+		{
+			for (int i = 0; i < into.length; i++)
+			{
+				into[i] += from[i];
+			}
+		}
+
+		private static long sum(long[] values)
+		{
+			long total = 0;
+			for (long value : values)
+			{
+				total += value;
+			}
+			return total;
+		}
+
+		private static double ratio(long numerator, long denominator)
+		{
+			return denominator == 0 ? 0 : (double) numerator / denominator;
+		}
+	}
+}
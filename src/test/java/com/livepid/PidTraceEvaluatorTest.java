@@ -0,0 +1,83 @@
+package com.livepid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PidTraceEvaluatorTest
+{
+	private static final int TICKS = 3_000;
+
+	private Path corpus;
+	private ForkJoinPool pool;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		File marker = File.createTempFile("live-pid-corpus", "");
+		marker.delete();
+		corpus = marker.toPath();
+		pool = new ForkJoinPool(2);
+	}
+
+	@After
+	public void tearDown() throws IOException
+	{
+		pool.shutdown();
+		try (Stream<Path> paths = Files.walk(corpus))
+		{
+			for (Path path : paths.sorted((a, b) -> b.compareTo(a)).collect(Collectors.toList()))
+			{
+				Files.delete(path);
+			}
+		}
+	}
+
+	@Test
+	public void recordedFightScoresLikeTheLiveRun() throws IOException
+	{
+		Path trace = corpus.resolve("fight" + PidTraceReplayer.TRACE_EXTENSION);
+		Files.createDirectories(corpus);
+		FightSimulator.Result live = FightSimulator.record(FightScenario.ONE_V_ONE, 3, TICKS, trace);
+
+		PidTraceEvaluator.Evaluation evaluation = PidTraceEvaluator.evaluate(Files.readAllBytes(trace),
+			Files.readAllLines(PidTraceEvaluator.truthOf(trace)));
+
+		assertEquals(live.getMeasuredTicks(), evaluation.getScoredTicks());
+		assertEquals(live.getAccuracy(), evaluation.getAccuracy(), 1e-9);
+		assertEquals(live.getUnknownRate(), evaluation.getUnknownRate(), 1e-9);
+		assertEquals(live.getMeanRecoveryTicks(), evaluation.getMeanTicksToCorrect(), 1e-9);
+	}
+
+	@Test
+	public void parallelEvaluationMergesEveryTrace() throws IOException
+	{
+		int count = 2 * FightScenario.values().length;
+		PidTraceEvaluator.generate(corpus, count, TICKS, pool);
+		List<Path> traces = PidTraceReplayer.findTraces(corpus.toString());
+		assertEquals(count, traces.size());
+
+		PidTraceEvaluator.Evaluation parallel = PidTraceEvaluator.evaluate(traces, pool);
+		PidTraceEvaluator.Evaluation serial = new PidTraceEvaluator.Evaluation();
+		for (Path trace : traces)
+		{
+			serial.merge(PidTraceEvaluator.evaluate(Files.readAllBytes(trace),
+				Files.readAllLines(PidTraceEvaluator.truthOf(trace))));
+		}
+
+		assertEquals(count, parallel.getTraces());
+		assertEquals(serial.report(), parallel.report());
+		assertTrue(parallel.report(), parallel.getAccuracy() > 0.7);
+		assertTrue(parallel.getScoredTicks(AttackAnimationBuckets.Bucket.MELEE, 1) > 0);
+	}
+}
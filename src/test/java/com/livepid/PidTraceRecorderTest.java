@@ -0,0 +1,208 @@
+package com.livepid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.runelite.api.GameState;
+import net.runelite.api.Hitsplat;
+import net.runelite.api.HitsplatID;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.HitsplatApplied;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PidTraceRecorderTest
+{
+	/** writeUTF's modified UTF-8 differs from standard UTF-8 for NUL and supplementary characters. */
+	private static final String UNUSUAL_NAME = "A\u0000b\uD83D\uDE00";
+	private static final int WARMUP_TICKS = 20_000;
+	private static final int MEASURED_TICKS = 20_000;
+	private static final int HITSPLATS_PER_TICK = 4;
+	/** Ticks between pauses that let the writer thread keep up, as it does at 0.6 s per tick. */
+	private static final int TICKS_PER_PAUSE = 256;
+
+	private static final com.sun.management.ThreadMXBean THREADS =
+		(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private SimulatedClient client;
+	private SimulatedPlayer local;
+	private File file;
+	private PidTraceRecorder recorder;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		client = new SimulatedClient();
+		local = new SimulatedPlayer(0, "Local", 3200, 3200);
+		client.setLocalPlayer(local);
+		file = File.createTempFile("live-pid-trace", PidTraceReplayer.TRACE_EXTENSION);
+		file.delete();
+		recorder = new PidTraceRecorder(client.client(), file);
+	}
+
+	@After
+	public void tearDown()
+	{
+		file.delete();
+	}
+
+	@Test
+	public void reusedIndicesAndSegmentsReplayUnderTheRightNames() throws Exception
+	{
+		SimulatedPlayer first = new SimulatedPlayer(1, "First", 3201, 3200);
+		hit(1, first);
+
+		SimulatedPlayer second = new SimulatedPlayer(1, "Second", 3201, 3200);
+		client.removePlayer(first);
+		hit(2, second);
+
+		GameStateChanged hop = new GameStateChanged();
+		hop.setGameState(GameState.HOPPING);
+		recorder.recordGameStateChanged(hop);
+		client.removePlayer(second);
+		SimulatedPlayer unusual = new SimulatedPlayer(1, UNUSUAL_NAME, 3201, 3200);
+		hit(3, unusual);
+
+		List<String> victims = new ArrayList<>();
+		List<Integer> identities = new ArrayList<>();
+		PidTraceReplayer.Result result = PidTraceReplayer.replay(finish(), new PidTraceReplayer.TickObserver()
+		{
+			@Override
+			public void onHitsplat(CombatEventPipeline.ClassifiedHitsplat hitsplat)
+			{
+				victims.add(hitsplat.getVictimName());
+				identities.add(hitsplat.getVictimIdentity());
+			}
+
+			@Override
+			public void onTick(int tick, PidDetector detector)
+			{
+			}
+		});
+
+		assertEquals(Arrays.asList("First", "Second", UNUSUAL_NAME), victims);
+		assertEquals(PlayerIdentity.of(1, UNUSUAL_NAME), (int) identities.get(2));
+		assertEquals(3, result.getTicks());
+	}
+
+	@Test
+	public void recordedHitsplatFieldsAreReplayed() throws Exception
+	{
+		SimulatedPlayer opponent = new SimulatedPlayer(1, "Opponent", 3201, 3200);
+		client.addPlayer(opponent);
+		client.setTickCount(1);
+		HitsplatApplied event = new HitsplatApplied();
+		event.setActor(opponent.player());
+		// Ownership as the client reports it, which need not follow from the type.
+		event.setHitsplat(new Hitsplat(HitsplatID.DAMAGE_OTHER, 7, 123)
+		{
+			@Override
+			public boolean isMine()
+			{
+				return true;
+			}
+		});
+		recorder.recordHitsplatApplied(event);
+		recorder.recordGameTick();
+
+		List<Boolean> outgoing = new ArrayList<>();
+		PidTraceReplayer.replay(finish(), new PidTraceReplayer.TickObserver()
+		{
+			@Override
+			public void onHitsplat(CombatEventPipeline.ClassifiedHitsplat hitsplat)
+			{
+				outgoing.add(hitsplat.isOutgoing());
+				assertEquals(7, hitsplat.getAmount());
+			}
+
+			@Override
+			public void onTick(int tick, PidDetector detector)
+			{
+			}
+		});
+
+		assertEquals(Arrays.asList(true), outgoing);
+	}
+
+	@Test
+	public void recordingAFightDoesNotAllocate() throws Exception
+	{
+		SimulatedPlayer opponent = new SimulatedPlayer(1, "Opponent", 3201, 3200);
+		client.addPlayer(opponent);
+		local.interactWith(opponent);
+		opponent.interactWith(local);
+		HitsplatApplied event = new HitsplatApplied();
+		event.setActor(opponent.player());
+		event.setHitsplat(new Hitsplat(HitsplatID.DAMAGE_ME, 5, 0));
+
+		long overhead = measurementOverhead();
+		long bytes = 0;
+		for (int tick = 1; tick <= WARMUP_TICKS + MEASURED_TICKS; tick++)
+		{
+			client.setTickCount(tick);
+			long before = allocatedBytes();
+			for (int i = 0; i < HITSPLATS_PER_TICK; i++)
+			{
+				recorder.recordHitsplatApplied(event);
+			}
+			recorder.recordGameTick();
+			long after = allocatedBytes();
+
+			if (tick > WARMUP_TICKS)
+			{
+				bytes += Math.max(0, after - before - overhead);
+			}
+			if (tick % TICKS_PER_PAUSE == 0)
+			{
+				Thread.sleep(1);
+			}
+		}
+
+		// Full chunks go to the writer thread and come back for reuse, so only the hand-off itself allocates.
+		assertEquals("bytes/tick", 0, bytes / MEASURED_TICKS);
+		assertEquals(WARMUP_TICKS + MEASURED_TICKS, PidTraceReplayer.replay(finish()).getTicks());
+	}
+
+	private void hit(int tick, SimulatedPlayer victim)
+	{
+		client.addPlayer(victim);
+		local.interactWith(victim);
+		client.setTickCount(tick);
+		HitsplatApplied event = new HitsplatApplied();
+		event.setActor(victim.player());
+		event.setHitsplat(new Hitsplat(HitsplatID.DAMAGE_ME, 5, 0));
+		recorder.recordHitsplatApplied(event);
+		recorder.recordGameTick();
+	}
+
+	private static long measurementOverhead()
+	{
+		long overhead = Long.MAX_VALUE;
+		for (int i = 0; i < 10_000; i++)
+		{
+			long before = allocatedBytes();
+			overhead = Math.min(overhead, allocatedBytes() - before);
+		}
+		return overhead;
+	}
+
+	private static long allocatedBytes()
+	{
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private byte[] finish() throws Exception
+	{
+		recorder.close();
+		assertTrue(recorder.awaitTermination(10, TimeUnit.SECONDS));
+		return Files.readAllBytes(file.toPath());
+	}
+}
@@ -0,0 +1,405 @@
+package com.livepid;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import net.runelite.api.Actor;
+import net.runelite.api.GameState;
+import net.runelite.api.Hitsplat;
+import net.runelite.api.InventoryID;
+import net.runelite.api.events.AnimationChanged;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.HitsplatApplied;
+import net.runelite.api.events.ItemContainerChanged;
+
+/**
+ * Replays traces written by {@link PidTraceRecorder} through a fresh {@link PidDetector}, with the client
+ * replaced by {@link SimulatedClient}. Events are dispatched back to back, so replay runs as fast as the
+ * detector itself.
+ *
+ * <p>Run as a program with trace files or directories as arguments to replay a whole corpus:
+ * {@code java -cp <test classpath> com.livepid.PidTraceReplayer ~/.runelite/live-pid/traces}
+ */
+final class PidTraceReplayer
+{
+	/**
+	 * Sees the replayed combat events after the detector, and the detector after every game tick.
+	 */
+	interface TickObserver extends CombatEventPipeline.Consumer
+	{
+		void onTick(int tick, PidDetector detector);
+	}
+
+	static final String TRACE_EXTENSION = ".lpt";
+
+	private static final TickObserver NO_OBSERVER = (tick, detector) ->
+	{
+	};
+
+	private static final Actor NON_PLAYER_ACTOR = (Actor) Proxy.newProxyInstance(
+		PidTraceReplayer.class.getClassLoader(), new Class<?>[]{Actor.class},
+		(proxy, method, args) -> SimulatedClient.defaultValue(method.getReturnType()));
+
+	private final SimulatedClient client = new SimulatedClient();
+	private final PidDetector detector = new PidDetector(client.client());
+	private final CombatEventPipeline combatEvents = new CombatEventPipeline(client.client());
+	private final Map<Integer, String> itemNames = new HashMap<>();
+	private final AnimationChanged animationEvent = new AnimationChanged();
+	private final HitsplatApplied hitsplatEvent = new HitsplatApplied();
+	private final Result result = new Result();
+	private final TickObserver observer;
+
+	private SimulatedPlayer[] players = new SimulatedPlayer[64];
+
+	private PidTraceReplayer(TickObserver observer)
+	{
+		this.observer = observer;
+		combatEvents.addConsumer(detector);
+		combatEvents.addConsumer(observer);
+	}
+
+	static Result replay(Path trace) throws IOException
+	{
+		return replay(Files.readAllBytes(trace));
+	}
+
+	static Result replay(byte[] trace)
+	{
+		return replay(trace, NO_OBSERVER);
+	}
+
+	static Result replay(byte[] trace, TickObserver observer)
+	{
+		PidTraceReplayer replayer = new PidTraceReplayer(observer);
+		replayer.run(ByteBuffer.wrap(trace));
+		return replayer.result;
+	}
+
+	private void run(ByteBuffer in)
+	{
+		if (in.remaining() < 5 || in.getInt() != PidTraceRecorder.MAGIC)
+		{
+			throw new IllegalArgumentException("Not a Live Pid trace");
+		}
+		int version = in.get() & 0xFF;
+		if (version != PidTraceRecorder.VERSION)
+		{
+			throw new IllegalArgumentException("Unsupported trace version " + version);
+		}
+
+		while (in.remaining() >= 2)
+		{
+			int type = in.get() & 0xFF;
+			int length = in.get() & 0xFF;
+			if (in.remaining() < length)
+			{
+				// Truncated tail, e.g. a client that was killed mid-write.
+				break;
+			}
+
+			int end = in.position() + length;
+			dispatch(type, in);
+			in.position(end);
+		}
+	}
+
+	private void dispatch(int type, ByteBuffer in)
+	{
+		switch (type)
+		{
+			case PidTraceRecorder.RECORD_PLAYER:
+			{
+				int handle = PlayerIdentity.index(in.getInt());
+				String name = readUtf(in);
+				if (handle >= players.length)
+				{
+					players = Arrays.copyOf(players, Math.max(players.length * 2, handle + 1));
+				}
+				if (players[handle] != null)
+				{
+					// The scene index changed hands since it was last recorded.
+					client.removePlayer(players[handle]);
+				}
+				players[handle] = new SimulatedPlayer(handle, name, 0, 0);
+				client.addPlayer(players[handle]);
+				break;
+			}
+			case PidTraceRecorder.RECORD_ITEM_NAME:
+				itemNames.put(in.getInt(), readUtf(in));
+				break;
+			case PidTraceRecorder.RECORD_PLAYER_STATE:
+			{
+				SimulatedPlayer player = player(readU16(in));
+				int x = readU16(in);
+				int y = readU16(in);
+				int plane = in.get() & 0xFF;
+				Actor interacting = actor(readU16(in));
+				int animation = readU16(in);
+				boolean dead = in.get() != 0;
+				if (player != null)
+				{
+					player.moveTo(x, y, plane)
+						.setInteracting(interacting)
+						.setAnimation(animation == PidTraceRecorder.NO_ANIMATION ? -1 : animation)
+						.setDead(dead);
+				}
+				break;
+			}
+			case PidTraceRecorder.RECORD_LOCAL_PLAYER:
+				client.setLocalPlayer(player(readU16(in)));
+				break;
+			case PidTraceRecorder.RECORD_RING:
+			{
+				int itemId = in.getInt();
+				if (itemId < 0)
+				{
+					client.unequipRing();
+				}
+				else
+				{
+					client.equipRing(itemId, itemNames.get(itemId));
+				}
+				detector.onItemContainerChanged(new ItemContainerChanged(InventoryID.EQUIPMENT.getId(), client.getEquipment()));
+				break;
+			}
+			case PidTraceRecorder.RECORD_GAME_TICK:
+			{
+				int tick = in.getInt();
+				client.setTickCount(tick);
+				detector.onGameTick(combatEvents.getWorld());
+				combatEvents.onGameTick();
+				result.onTick(detector.getCurrentPidStatus());
+				observer.onTick(tick, detector);
+				break;
+			}
+			case PidTraceRecorder.RECORD_ANIMATION:
+			{
+				client.setTickCount(in.getInt());
+				SimulatedPlayer actor = player(readU16(in));
+				if (actor != null)
+				{
+					animationEvent.setActor(actor.player());
+					combatEvents.onAnimationChanged(animationEvent);
+					result.animations++;
+				}
+				break;
+			}
+			case PidTraceRecorder.RECORD_HITSPLAT:
+			{
+				client.setTickCount(in.getInt());
+				SimulatedPlayer victim = player(readU16(in));
+				int hitsplatType = readU16(in);
+				int amount = readU16(in);
+				boolean mine = in.get() != 0;
+				int disappearsOnGameCycle = in.getInt();
+				if (victim != null)
+				{
+					hitsplatEvent.setActor(victim.player());
+					hitsplatEvent.setHitsplat(new RecordedHitsplat(hitsplatType, amount, disappearsOnGameCycle, mine));
+					combatEvents.onHitsplatApplied(hitsplatEvent);
+					result.hitsplats++;
+				}
+				break;
+			}
+			case PidTraceRecorder.RECORD_SEGMENT:
+			{
+				GameStateChanged event = new GameStateChanged();
+				event.setGameState(GameState.valueOf(readUtf(in)));
+				for (SimulatedPlayer player : players)
+				{
+					if (player != null)
+					{
+						client.removePlayer(player);
+					}
+				}
+				Arrays.fill(players, null);
+				client.setLocalPlayer(null);
+				detector.onGameStateChanged(event);
+				break;
+			}
+			default:
+				// Unknown record types are skipped by length so newer traces still replay.
+				break;
+		}
+	}
+
+	static List<Path> findTraces(String... roots) throws IOException
+	{
+		List<Path> traces = new ArrayList<>();
+		for (String root : roots)
+		{
+			try (Stream<Path> paths = Files.walk(Paths.get(root)))
+			{
+				traces.addAll(paths
+					.filter(path -> Files.isRegularFile(path) && path.toString().endsWith(TRACE_EXTENSION))
+					.sorted()
+					.collect(Collectors.toList()));
+			}
+		}
+		return traces;
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length == 0)
+		{
+			System.err.println("Usage: PidTraceReplayer <trace file or directory>...");
+			System.exit(1);
+		}
+
+		List<Path> traces = findTraces(args);
+		long events = 0;
+		long start = System.nanoTime();
+		for (Path trace : traces)
+		{
+			Result result = replay(trace);
+			events += result.getEvents();
+			System.out.println(trace.getFileName() + ": " + result);
+		}
+
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("Replayed %d traces, %d events in %.3f s (%.0f events/s)%n",
+			traces.size(), events, seconds, events / Math.max(seconds, 1e-9));
+	}
+
+	private SimulatedPlayer player(int handle)
+	{
+		return handle < players.length ? players[handle] : null;
+	}
+
+	private Actor actor(int handle)
+	{
+		if (handle == PidTraceRecorder.NON_PLAYER_HANDLE)
+		{
+			return NON_PLAYER_ACTOR;
+		}
+		SimulatedPlayer player = player(handle);
+		return player == null ? null : player.player();
+	}
+
+	private static int readU16(ByteBuffer in)
+	{
+		return in.getShort() & 0xFFFF;
+	}
+
+	/**
+	 * Reads a string written by {@link java.io.DataOutputStream#writeUTF}, which is modified UTF-8 rather
+	 * than standard UTF-8 for NUL and supplementary characters.
+	 */
+	private static String readUtf(ByteBuffer in)
+	{
+		int length = readU16(in);
+		byte[] bytes = new byte[2 + length];
+		bytes[0] = (byte) (length >>> 8);
+		bytes[1] = (byte) length;
+		in.get(bytes, 2, length);
+		try
+		{
+			return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+		}
+		catch (IOException ex)
+		{
+			throw new IllegalArgumentException("Malformed string in trace", ex);
+		}
+	}
+
+	/**
+	 * A hitsplat with the ownership the client reported when it was recorded, rather than one derived from
+	 * its type.
+	 */
+	private static final class RecordedHitsplat extends Hitsplat
+	{
+		private final boolean mine;
+
+		private RecordedHitsplat(int hitsplatType, int amount, int disappearsOnGameCycle, boolean mine)
+		{
+			super(hitsplatType, amount, disappearsOnGameCycle);
+			this.mine = mine;
+		}
+
+		@Override
+		public boolean isMine()
+		{
+			return mine;
+		}
+	}
+
+	static final class Result
+	{
+		private final int[] ticksByStatus = new int[PidStatus.values().length];
+		private int ticks;
+		private int animations;
+		private int hitsplats;
+		private int statusChanges;
+		private int firstResolvedTick = -1;
+		private PidStatus finalStatus = PidStatus.UNKNOWN;
+
+		private void onTick(PidStatus status)
+		{
+			if (status != finalStatus)
+			{
+				statusChanges++;
+			}
+			if (firstResolvedTick < 0 && status != PidStatus.UNKNOWN)
+			{
+				firstResolvedTick = ticks;
+			}
+			ticksByStatus[status.ordinal()]++;
+			finalStatus = status;
+			ticks++;
+		}
+
+		int getTicks()
+		{
+			return ticks;
+		}
+
+		int getEvents()
+		{
+			return ticks + animations + hitsplats;
+		}
+
+		int getTicks(PidStatus status)
+		{
+			return ticksByStatus[status.ordinal()];
+		}
+
+		int getStatusChanges()
+		{
+			return statusChanges;
+		}
+
+		/**
+		 * Ticks replayed before the detector first reported a status other than UNKNOWN, or -1 if it never did.
+		 */
+		int getFirstResolvedTick()
+		{
+			return firstResolvedTick;
+		}
+
+		PidStatus getFinalStatus()
+		{
+			return finalStatus;
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format("ticks=%d animations=%d hitsplats=%d on=%d off=%d unknown=%d changes=%d firstResolved=%d final=%s",
+				ticks, animations, hitsplats, getTicks(PidStatus.ON_PID), getTicks(PidStatus.OFF_PID),
+				getTicks(PidStatus.UNKNOWN), statusChanges, firstResolvedTick, finalStatus);
+		}
+	}
+}
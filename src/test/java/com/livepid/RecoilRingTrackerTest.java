@@ -0,0 +1,134 @@
+package com.livepid;
+
+import net.runelite.api.GameState;
+import net.runelite.api.InventoryID;
+import net.runelite.api.ItemID;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.ItemContainerChanged;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RecoilRingTrackerTest
+{
+	private static final int UNLISTED_SUFFERING_VARIANT = 99_001;
+
+	private SimulatedClient client;
+	private RecoilRingTracker tracker;
+
+	@Before
+	public void setUp()
+	{
+		client = new SimulatedClient();
+		tracker = new RecoilRingTracker(client.client());
+	}
+
+	@Test
+	public void readsEquipmentOnFirstLookup()
+	{
+		client.equipRing(ItemID.RING_OF_RECOIL, "Ring of recoil");
+
+		assertTrue(tracker.isEquipped());
+	}
+
+	@Test
+	public void followsEquipAndUnequip()
+	{
+		assertFalse(tracker.isEquipped());
+
+		client.equipRing(ItemID.RING_OF_SUFFERING_RI, "Ring of suffering (ri)");
+		assertFalse("no event yet", tracker.isEquipped());
+		equipmentChanged();
+		assertTrue(tracker.isEquipped());
+
+		client.equipRing(ItemID.BERSERKER_RING, "Berserker ring");
+		equipmentChanged();
+		assertFalse(tracker.isEquipped());
+
+		client.equipRing(ItemID.RING_OF_RECOIL, "Ring of recoil");
+		equipmentChanged();
+		assertTrue(tracker.isEquipped());
+
+		client.unequipRing();
+		equipmentChanged();
+		assertFalse(tracker.isEquipped());
+	}
+
+	@Test
+	public void ignoresOtherContainers()
+	{
+		assertFalse(tracker.isEquipped());
+		client.equipRing(ItemID.RING_OF_RECOIL, "Ring of recoil");
+
+		tracker.onItemContainerChanged(new ItemContainerChanged(InventoryID.INVENTORY.getId(), client.getEquipment()));
+
+		assertFalse(tracker.isEquipped());
+	}
+
+	@Test
+	public void recognisesEverySufferingVariant()
+	{
+		int[] variants = {
+			ItemID.RING_OF_SUFFERING, ItemID.RING_OF_SUFFERING_I, ItemID.RING_OF_SUFFERING_R,
+			ItemID.RING_OF_SUFFERING_RI, ItemID.RING_OF_SUFFERING_I_25246, ItemID.RING_OF_SUFFERING_I_26761
+		};
+		for (int variant : variants)
+		{
+			client.equipRing(variant, "Ring of suffering");
+			equipmentChanged();
+			assertTrue("ring " + variant, tracker.isEquipped());
+		}
+	}
+
+	@Test
+	public void doesNotResolveUnlistedRingsByName()
+	{
+		client.equipRing(UNLISTED_SUFFERING_VARIANT, "Ring of suffering (i)");
+		equipmentChanged();
+
+		assertFalse(tracker.isEquipped());
+	}
+
+	@Test
+	public void rereadsEquipmentAfterLogin()
+	{
+		assertFalse(tracker.isEquipped());
+		gameState(GameState.LOGIN_SCREEN);
+
+		client.equipRing(ItemID.RING_OF_RECOIL, "Ring of recoil");
+		gameState(GameState.LOGGING_IN);
+		gameState(GameState.LOGGED_IN);
+
+		assertTrue(tracker.isEquipped());
+	}
+
+	@Test
+	public void clearsOnWorldHop()
+	{
+		client.equipRing(ItemID.RING_OF_RECOIL, "Ring of recoil");
+		assertTrue(tracker.isEquipped());
+
+		gameState(GameState.HOPPING);
+		client.unequipRing();
+		gameState(GameState.LOADING);
+		assertFalse(tracker.isEquipped());
+
+		gameState(GameState.LOGGED_IN);
+		client.equipRing(ItemID.RING_OF_SUFFERING_RI, "Ring of suffering (ri)");
+		equipmentChanged();
+		assertTrue(tracker.isEquipped());
+	}
+
+	private void equipmentChanged()
+	{
+		tracker.onItemContainerChanged(new ItemContainerChanged(InventoryID.EQUIPMENT.getId(), client.getEquipment()));
+	}
+
+	private void gameState(GameState gameState)
+	{
+		GameStateChanged event = new GameStateChanged();
+		event.setGameState(gameState);
+		tracker.onGameStateChanged(event);
+	}
+}
@@ -0,0 +1,274 @@
+package com.livepid;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.function.Supplier;
+import net.runelite.api.Client;
+import net.runelite.api.EquipmentInventorySlot;
+import net.runelite.api.IndexedObjectSet;
+import net.runelite.api.InventoryID;
+import net.runelite.api.Item;
+import net.runelite.api.ItemComposition;
+import net.runelite.api.ItemContainer;
+import net.runelite.api.Player;
+import net.runelite.api.WorldView;
+
+/**
+ * Lightweight {@link Client} stand-in covering the surface the detector reads: local player, tick count,
+ * players by scene index (lookup and iteration), the equipment container and item definitions for the ring
+ * slot. The wide client interfaces are dynamic proxies, which only the no-argument reads made per event go
+ * through; the scene's player set, looked up by index, is a plain class. State is held pre-boxed, tick
+ * counts included, so the detector's reads do not allocate inside the stand-in.
+ */
+final class SimulatedClient implements InvocationHandler
+{
+	private static final int EQUIPMENT_SIZE = 14;
+	private static final String UNNAMED_ITEM = "Null";
+	/** Tick counts below this are boxed once each and reused. */
+	private static final int MAX_BOXED_TICK = 1 << 17;
+
+	private final Client client;
+	private final ItemContainer equipment;
+	private final Item[] equipmentItems = new Item[EQUIPMENT_SIZE];
+	private final ItemComposition ringDefinition;
+	private final ItemComposition unnamedDefinition;
+	private final WorldView worldView;
+
+	private SimulatedPlayer[] playersByIndex = new SimulatedPlayer[64];
+	private SimulatedPlayer localPlayer;
+	private Integer tickCount = 0;
+	private Integer[] boxedTicks = new Integer[0];
+	private int ringItemId = -1;
+	private String ringName;
+
+	SimulatedClient()
+	{
+		ClassLoader classLoader = SimulatedClient.class.getClassLoader();
+		this.client = (Client) Proxy.newProxyInstance(classLoader, new Class<?>[]{Client.class}, this);
+		this.equipment = (ItemContainer) Proxy.newProxyInstance(classLoader, new Class<?>[]{ItemContainer.class},
+			(proxy, method, args) ->
+			{
+				switch (method.getName())
+				{
+					case "getId":
+						return InventoryID.EQUIPMENT.getId();
+					case "getItems":
+						return equipmentItems;
+					case "getItem":
+						int slot = (Integer) args[0];
+						return slot >= 0 && slot < equipmentItems.length ? equipmentItems[slot] : null;
+					case "size":
+						return equipmentItems.length;
+					default:
+						return defaultValue(method.getReturnType());
+				}
+			});
+		this.ringDefinition = itemDefinition(() -> ringName);
+		this.unnamedDefinition = itemDefinition(() -> UNNAMED_ITEM);
+
+		IndexedObjectSet<Player> players = new ScenePlayers();
+		this.worldView = (WorldView) Proxy.newProxyInstance(classLoader, new Class<?>[]{WorldView.class},
+			(proxy, method, args) -> "players".equals(method.getName()) ? players : defaultValue(method.getReturnType()));
+	}
+
+	Client client()
+	{
+		return client;
+	}
+
+	/**
+	 * Places {@code player} in the scene at its id, replacing whoever held that index before.
+	 */
+	SimulatedClient addPlayer(SimulatedPlayer player)
+	{
+		int index = player.getId();
+		if (index >= playersByIndex.length)
+		{
+			playersByIndex = Arrays.copyOf(playersByIndex, Math.max(playersByIndex.length * 2, index + 1));
+		}
+		playersByIndex[index] = player;
+		return this;
+	}
+
+	SimulatedClient removePlayer(SimulatedPlayer player)
+	{
+		int index = player.getId();
+		if (playerByIndex(index) == player)
+		{
+			playersByIndex[index] = null;
+		}
+		return this;
+	}
+
+	SimulatedPlayer playerByIndex(int index)
+	{
+		return index >= 0 && index < playersByIndex.length ? playersByIndex[index] : null;
+	}
+
+	SimulatedClient setLocalPlayer(SimulatedPlayer localPlayer)
+	{
+		this.localPlayer = localPlayer;
+		return localPlayer == null ? this : addPlayer(localPlayer);
+	}
+
+	SimulatedPlayer getLocalPlayer()
+	{
+		return localPlayer;
+	}
+
+	SimulatedClient setTickCount(int tickCount)
+	{
+		if (tickCount < 0 || tickCount >= MAX_BOXED_TICK)
+		{
+			this.tickCount = tickCount;
+			return this;
+		}
+		if (tickCount >= boxedTicks.length)
+		{
+			boxedTicks = Arrays.copyOf(boxedTicks, Math.min(MAX_BOXED_TICK, Math.max(boxedTicks.length * 2, tickCount + 1)));
+		}
+		Integer boxed = boxedTicks[tickCount];
+		if (boxed == null)
+		{
+			boxed = tickCount;
+			boxedTicks[tickCount] = boxed;
+		}
+		this.tickCount = boxed;
+		return this;
+	}
+
+	int getTickCount()
+	{
+		return tickCount;
+	}
+
+	SimulatedClient advanceTick()
+	{
+		return setTickCount(tickCount + 1);
+	}
+
+	SimulatedClient equipRing(int itemId, String name)
+	{
+		ringItemId = itemId;
+		ringName = name;
+		equipmentItems[EquipmentInventorySlot.RING.getSlotIdx()] = new Item(itemId, 1);
+		return this;
+	}
+
+	SimulatedClient unequipRing()
+	{
+		ringItemId = -1;
+		ringName = null;
+		equipmentItems[EquipmentInventorySlot.RING.getSlotIdx()] = null;
+		return this;
+	}
+
+	ItemContainer getEquipment()
+	{
+		return equipment;
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args)
+	{
+		switch (method.getName())
+		{
+			case "getLocalPlayer":
+				return localPlayer == null ? null : localPlayer.player();
+			case "getTickCount":
+				return tickCount;
+			case "getTopLevelWorldView":
+				return worldView;
+			case "getItemContainer":
+				return isEquipment(args[0]) ? equipment : null;
+			case "getItemDefinition":
+				return (Integer) args[0] == ringItemId ? ringDefinition : unnamedDefinition;
+			case "isClientThread":
+				return Boolean.TRUE;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "SimulatedClient";
+			default:
+				return defaultValue(method.getReturnType());
+		}
+	}
+
+	private static boolean isEquipment(Object inventory)
+	{
+		if (inventory instanceof InventoryID)
+		{
+			return inventory == InventoryID.EQUIPMENT;
+		}
+		return inventory instanceof Integer && (Integer) inventory == InventoryID.EQUIPMENT.getId();
+	}
+
+	private static ItemComposition itemDefinition(Supplier<String> name)
+	{
+		return (ItemComposition) Proxy.newProxyInstance(SimulatedClient.class.getClassLoader(),
+			new Class<?>[]{ItemComposition.class},
+			(proxy, method, args) -> "getName".equals(method.getName()) ? name.get() : defaultValue(method.getReturnType()));
+	}
+
+	/**
+	 * The scene's players, by index.
+	 */
+	private final class ScenePlayers implements IndexedObjectSet<Player>
+	{
+		@Override
+		public Player byIndex(int index)
+		{
+			SimulatedPlayer player = playerByIndex(index);
+			return player == null ? null : player.player();
+		}
+
+		@Override
+		public Iterator<Player> iterator()
+		{
+			return Arrays.stream(playersByIndex).filter(Objects::nonNull).map(SimulatedPlayer::player).iterator();
+		}
+	}
+
+	static Object defaultValue(Class<?> type)
+	{
+		if (!type.isPrimitive() || type == void.class)
+		{
+			return null;
+		}
+		if (type == boolean.class)
+		{
+			return Boolean.FALSE;
+		}
+		if (type == long.class)
+		{
+			return 0L;
+		}
+		if (type == double.class)
+		{
+			return 0.0d;
+		}
+		if (type == float.class)
+		{
+			return 0.0f;
+		}
+		if (type == char.class)
+		{
+			return (char) 0;
+		}
+		if (type == byte.class)
+		{
+			return (byte) 0;
+		}
+		if (type == short.class)
+		{
+			return (short) 0;
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,118 @@
+package com.livepid;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import net.runelite.api.Actor;
+import net.runelite.api.Player;
+import net.runelite.api.coords.WorldPoint;
+
+/**
+ * Lightweight {@link Player} stand-in backed by a dynamic proxy.
+ * Getters return pre-boxed state, so reading a player through the proxy does not allocate.
+ */
+final class SimulatedPlayer implements InvocationHandler
+{
+	private static final int DEFAULT_PLANE = 0;
+	private static final Integer NO_ANIMATION = -1;
+
+	private final Player player;
+	private final Integer id;
+	private final String name;
+
+	private WorldPoint location;
+	private Actor interacting;
+	private Integer animation = NO_ANIMATION;
+	private Boolean dead = Boolean.FALSE;
+
+	SimulatedPlayer(int id, String name, int x, int y)
+	{
+		this.id = id;
+		this.name = name;
+		this.location = new WorldPoint(x, y, DEFAULT_PLANE);
+		this.player = (Player) Proxy.newProxyInstance(
+			SimulatedPlayer.class.getClassLoader(), new Class<?>[]{Player.class}, this);
+	}
+
+	Player player()
+	{
+		return player;
+	}
+
+	int getId()
+	{
+		return id;
+	}
+
+	String getName()
+	{
+		return name;
+	}
+
+	WorldPoint getLocation()
+	{
+		return location;
+	}
+
+	SimulatedPlayer moveTo(int x, int y)
+	{
+		return moveTo(x, y, DEFAULT_PLANE);
+	}
+
+	SimulatedPlayer moveTo(int x, int y, int plane)
+	{
+		location = new WorldPoint(x, y, plane);
+		return this;
+	}
+
+	SimulatedPlayer interactWith(SimulatedPlayer target)
+	{
+		return setInteracting(target == null ? null : target.player);
+	}
+
+	SimulatedPlayer setInteracting(Actor interacting)
+	{
+		this.interacting = interacting;
+		return this;
+	}
+
+	SimulatedPlayer setAnimation(int animationId)
+	{
+		animation = animationId;
+		return this;
+	}
+
+	SimulatedPlayer setDead(boolean dead)
+	{
+		this.dead = dead;
+		return this;
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args)
+	{
+		switch (method.getName())
+		{
+			case "getId":
+				return id;
+			case "getName":
+				return name;
+			case "getWorldLocation":
+				return location;
+			case "getInteracting":
+				return interacting;
+			case "getAnimation":
+				return animation;
+			case "isDead":
+				return dead;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return id;
+			case "toString":
+				return "SimulatedPlayer[" + name + "]";
+			default:
+				return SimulatedClient.defaultValue(method.getReturnType());
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package com.livepid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WorldStateTest
+{
+	private SimulatedClient client;
+	private SimulatedPlayer local;
+	private SimulatedPlayer opponent;
+	private WorldState world;
+
+	@Before
+	public void setUp()
+	{
+		client = new SimulatedClient();
+		local = new SimulatedPlayer(0, "Local", 3200, 3200);
+		opponent = new SimulatedPlayer(1, "Opponent", 3203, 3205);
+		local.interactWith(opponent);
+		client.setLocalPlayer(local).addPlayer(opponent);
+		world = new WorldState(client.client());
+	}
+
+	@Test
+	public void stateIsCapturedOnceUntilInvalidated()
+	{
+		client.setTickCount(5);
+		assertEquals(5, world.getDistance());
+		assertEquals(PlayerIdentity.of(1, "Opponent"), world.getTargetIdentity());
+
+		client.setTickCount(6);
+		opponent.moveTo(3201, 3200);
+		assertEquals(5, world.getTick());
+		assertEquals(5, world.getDistance());
+
+		world.invalidate();
+		assertEquals(6, world.getTick());
+		assertEquals(1, world.getDistance());
+	}
+
+	@Test
+	public void refreshTargetPicksUpANewTargetOnly()
+	{
+		SimulatedPlayer other = new SimulatedPlayer(2, "Other", 3200, 3202);
+		client.addPlayer(other);
+		assertSame(opponent.player(), world.getTarget());
+
+		local.interactWith(other);
+		world.refreshTarget();
+
+		assertSame(other.player(), world.getTarget());
+		assertEquals("Other", world.getTargetName());
+		assertEquals(2, world.getDistance());
+	}
+
+	@Test
+	public void noTargetWithoutAnInteractingPlayer()
+	{
+		local.setInteracting(null);
+
+		assertNull(world.getTarget());
+		assertEquals(PlayerIdentity.NONE, world.getTargetIdentity());
+		assertEquals(-1, world.getDistance());
+		assertEquals(PlayerIdentity.of(0, "Local"), world.getLocalIdentity());
+	}
+
+	@Test
+	public void targetingTheLocalPlayerIsReadOncePerTick()
+	{
+		SimulatedPlayer attacker = new SimulatedPlayer(2, "Attacker", 3199, 3200).interactWith(local);
+		SimulatedPlayer bystander = new SimulatedPlayer(3, "Bystander", 3210, 3200);
+		client.addPlayer(attacker).addPlayer(bystander);
+
+		assertTrue(world.isTargetingLocal(attacker.player()));
+		assertFalse(world.isTargetingLocal(bystander.player()));
+
+		bystander.interactWith(local);
+		assertFalse("held until the next tick", world.isTargetingLocal(bystander.player()));
+		world.invalidate();
+		assertTrue(world.isTargetingLocal(bystander.player()));
+
+		client.setLocalPlayer(null);
+		world.invalidate();
+		assertFalse(world.isTargetingLocal(attacker.player()));
+	}
+
+	@Test
+	public void findPlayerChecksTheIdentityAtTheIndex()
+	{
+		int identity = PlayerIdentity.of(1, "Opponent");
+		assertSame(opponent.player(), world.findPlayer(identity));
+
+		client.removePlayer(opponent);
+		client.addPlayer(new SimulatedPlayer(1, "Someone else", 3203, 3205));
+		local.setInteracting(null);
+		world.invalidate();
+		assertNull("index now belongs to someone else", world.findPlayer(identity));
+		assertNull(world.findPlayer(PlayerIdentity.NONE));
+	}
+
+	@Test
+	public void identitiesAreCachedPerSceneIndexAndIgnoreCase()
+	{
+		SimulatedPlayer bystander = new SimulatedPlayer(7, "ZeZima", 3210, 3200);
+		client.addPlayer(bystander);
+
+		assertEquals(PlayerIdentity.of(7, "zezima"), world.getIdentity(bystander.player()));
+		assertSame(world.getName(bystander.player()), world.getName(bystander.player()));
+
+		SimulatedPlayer replacement = new SimulatedPlayer(7, "Other", 3210, 3200);
+		assertEquals("another player at the index is read afresh", PlayerIdentity.of(7, "Other"),
+			world.getIdentity(replacement.player()));
+	}
+}